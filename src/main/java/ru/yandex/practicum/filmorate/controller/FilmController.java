@@ -1,14 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.service.AutocompleteService;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SimilarFilmsService;
 import ru.yandex.practicum.filmorate.validator.FilmValidator;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 
 /**
@@ -22,11 +33,30 @@ import java.util.Collection;
 public class FilmController {
     private final FilmService filmService;
 
+    private final SimilarFilmsService similarFilmsService;
+
+    private final AutocompleteService autocompleteService;
+
+    private final FilmImportService filmImportService;
+
+    private final ObjectMapper objectMapper;
+
     @GetMapping
     Collection<Film> getAll() {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    Collection<Film> getPage(@RequestParam(value = "after", required = false) final Long after,
+                             @RequestParam(value = "limit") @Positive final Integer limit) {
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    ResponseEntity<StreamingResponseBody> getAllStreaming() {
+        return JsonArrayStream.of(objectMapper, filmService::forEachFilm);
+    }
+
     @GetMapping("{id}")
     Film get(@PathVariable final Long id) {
         return filmService.getFilm(id);
@@ -40,6 +70,11 @@ public class FilmController {
         return validatedFilm;
     }
 
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    FilmImportReport importFilms(final InputStream body) throws IOException {
+        return filmImportService.importFilms(body);
+    }
+
     @PutMapping
     Film update(@Valid @RequestBody final Film film) {
         final Film validatedFilm = FilmValidator.validate(film);
@@ -54,18 +89,38 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    Collection<Film> getPopular(@RequestParam(value = "count", defaultValue = "10") final Integer count,
+    Collection<Film> getPopular(@RequestParam(value = "count", defaultValue = "10") @Positive final Integer count,
                                 @RequestParam(value = "genreId", required = false) Integer genreId,
                                 @RequestParam(value = "year", required = false) Integer year) {
         return filmService.searchFilmByGenreAndYear(count, genreId, year);
     }
 
+    @GetMapping("/trending")
+    Collection<Film> getTrending(@RequestParam(value = "window", defaultValue = "24h") final String window,
+                                 @RequestParam(value = "count", defaultValue = "10") @Positive @Max(1000)
+                                 final Integer count) {
+        return filmService.getTrendingFilms(window, count);
+    }
+
     @GetMapping("/common")
     Collection<Film> getCommonPopularFilms(@RequestParam(value = "userId") final Long userId,
                                            @RequestParam(value = "friendId") final Long friendId) {
         return filmService.getCommonFilms(userId, friendId);
     }
 
+    @GetMapping("{id}/similar")
+    Collection<Film> getSimilar(@PathVariable final Long id,
+                                @RequestParam(value = "count", defaultValue = "10") @Positive final Integer count) {
+        return similarFilmsService.getSimilarFilms(id, count);
+    }
+
+    @GetMapping("/autocomplete")
+    Collection<Film> autocomplete(@RequestParam final String prefix,
+                                  @RequestParam(value = "count", defaultValue = "10") @Positive @Max(1000)
+                                 final Integer count) {
+        return autocompleteService.complete(prefix, count);
+    }
+
     @PutMapping("{id}/like/{userId}")
     void addLike(@PathVariable final Long id, @PathVariable final Long userId) {
         log.info("USER ({}) LIKES FILM ({})", userId, id);
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
@@ -13,6 +16,7 @@ import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validator.UserValidator;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
 import java.util.Collection;
 
 /**
@@ -30,11 +34,24 @@ public class UserController {
 
     private final RecommendationService recommendationService;
 
+    private final ObjectMapper objectMapper;
+
     @GetMapping
     Collection<User> getAll() {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    Collection<User> getPage(@RequestParam(value = "after", required = false) final Long after,
+                             @RequestParam(value = "limit") @Positive final Integer limit) {
+        return userService.getUsersPage(after, limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    ResponseEntity<StreamingResponseBody> getAllStreaming() {
+        return JsonArrayStream.of(objectMapper, userService::forEachUser);
+    }
+
     @GetMapping("{id}")
     User get(@PathVariable final Long id) {
         return userService.getUser(id);
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Событие добавления фильма.
+ */
+@Getter
+public class FilmAddedEvent extends ApplicationEvent {
+    private final Film film;
+
+    public FilmAddedEvent(Object source, Film film) {
+        super(source);
+        this.film = film;
+    }
+}
@@ -1,9 +1,7 @@
 package ru.yandex.practicum.filmorate.events;
 
-import org.springframework.context.ApplicationEvent;
-
-public class FilmLikeAddedEvent extends ApplicationEvent {
-    public FilmLikeAddedEvent(Object source) {
-        super(source);
+public class FilmLikeAddedEvent extends FilmLikeEvent {
+    public FilmLikeAddedEvent(Object source, Long filmId, Long userId, long likeTimestamp) {
+        super(source, filmId, userId, likeTimestamp);
     }
 }
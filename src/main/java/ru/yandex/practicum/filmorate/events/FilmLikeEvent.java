@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Базовое событие изменения лайка фильма. Несёт идентификаторы фильма и пользователя,
+ * чтобы обработчики могли обновлять только затронутые данные, и время операции: при отложенной записи
+ * событие публикуется позже, чем лайк был принят.
+ */
+@Getter
+public abstract class FilmLikeEvent extends ApplicationEvent {
+    private final Long filmId;
+    private final Long userId;
+    private final long likeTimestamp;
+
+    protected FilmLikeEvent(Object source, Long filmId, Long userId, long likeTimestamp) {
+        super(source);
+        this.filmId = filmId;
+        this.userId = userId;
+        this.likeTimestamp = likeTimestamp;
+    }
+}
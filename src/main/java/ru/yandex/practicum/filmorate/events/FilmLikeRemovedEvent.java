@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.events;
+
+public class FilmLikeRemovedEvent extends FilmLikeEvent {
+    public FilmLikeRemovedEvent(Object source, Long filmId, Long userId, long likeTimestamp) {
+        super(source, filmId, userId, likeTimestamp);
+    }
+}
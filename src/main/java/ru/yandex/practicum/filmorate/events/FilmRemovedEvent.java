@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * Событие удаления фильма. Лайки фильма удаляются из базы каскадно, поэтому обработчики
+ * должны сами убрать фильм из своих структур. Пользователи, лайкнувшие фильм, передаются в событии,
+ * чтобы обработчикам не приходилось искать их перебором.
+ */
+@Getter
+public class FilmRemovedEvent extends ApplicationEvent {
+    private final Long filmId;
+    private final Set<Long> likedUsersIds;
+
+    public FilmRemovedEvent(Object source, Long filmId, Set<Long> likedUsersIds) {
+        super(source);
+        this.filmId = filmId;
+        this.likedUsersIds = likedUsersIds;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Событие обновления фильма.
+ */
+@Getter
+public class FilmUpdatedEvent extends ApplicationEvent {
+    private final Film film;
+
+    public FilmUpdatedEvent(Object source, Film film) {
+        super(source);
+        this.film = film;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+/**
+ * Событие пакетного добавления фильмов (например, пакет импорта): одно событие на пакет, чтобы обработчики
+ * обновляли свои структуры за один проход.
+ */
+@Getter
+public class FilmsAddedEvent extends ApplicationEvent {
+    private final List<Film> films;
+
+    public FilmsAddedEvent(Object source, List<Film> films) {
+        super(source);
+        this.films = films;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * Событие удаления пользователя. Лайки пользователя удаляются из базы каскадно, поэтому обработчики
+ * должны сами убрать его лайки из своих структур. Фильмы, которые он лайкнул, передаются в событии,
+ * чтобы обработчикам не приходилось искать их перебором.
+ */
+@Getter
+public class UserRemovedEvent extends ApplicationEvent {
+    private final Long userId;
+    private final Set<Long> likedFilmsIds;
+
+    public UserRemovedEvent(Object source, Long userId, Set<Long> likedFilmsIds) {
+        super(source);
+        this.userId = userId;
+        this.likedFilmsIds = likedFilmsIds;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Исключение при переполнении буфера отложенной записи лайков.
+ */
+public class LikeBufferFullException extends RuntimeException {
+    public LikeBufferFullException(String s) {
+        super(s);
+    }
+}
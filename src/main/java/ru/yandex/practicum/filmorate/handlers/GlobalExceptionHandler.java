@@ -5,8 +5,10 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import ru.yandex.practicum.filmorate.exceptions.LikeBufferFullException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 
+import javax.validation.ConstraintViolationException;
 import java.util.NoSuchElementException;
 
 /**
@@ -20,9 +22,16 @@ public class GlobalExceptionHandler {
         return e;
     }
 
-    @ExceptionHandler({ValidationException.class, MethodArgumentNotValidException.class})
+    @ExceptionHandler({ValidationException.class, MethodArgumentNotValidException.class,
+            ConstraintViolationException.class})
     @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "validation failed")
     Exception handleValidationException(final Exception e) {
         return e;
     }
+
+    @ExceptionHandler(LikeBufferFullException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "like buffer is full, retry later")
+    Exception handleLikeBufferFullException(final Exception e) {
+        return e;
+    }
 }
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Результат массового импорта фильмов.
+ */
+@Value
+public class FilmImportReport {
+    long imported;
+
+    long failed;
+
+    /**
+     * Ошибки по строкам, не больше настроенного лимита; всего ошибок - failed.
+     */
+    List<LineError> errors;
+
+    @Value
+    public static class LineError {
+        long line;
+
+        String message;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Момент ответа на лайк при отложенной записи лайков.
+ */
+public enum LikeAckMode {
+    /**
+     * Сразу после постановки в буфер. Лайки, не записанные к аварийной остановке, теряются.
+     */
+    ENQUEUE,
+    /**
+     * После фиксации транзакции с пачкой, в которую попал лайк.
+     */
+    FLUSH
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Добавление или удаление лайка, ожидающее записи в хранилище.
+ */
+@Value
+public class LikeOperation {
+    Long filmId;
+
+    Long userId;
+
+    EventOperations operation;
+
+    /**
+     * Время принятия операции, мс от начала эпохи; попадает в ленту событий.
+     */
+    long timestamp;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Режим расчёта рекомендаций.
+ */
+public enum RecommendationMode {
+    /**
+     * Все фильмы пользователей с общим лайком и большим кол-вом лайков, без ранжирования.
+     */
+    NAIVE,
+    /**
+     * Фильмы ближайших соседей, взвешенные мерой сходства, лучшие K по сумме весов.
+     */
+    SCORED
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Мера сходства двух пользователей по их лайкам.
+ */
+public enum SimilarityMetric {
+    JACCARD {
+        @Override
+        public double similarity(int common, int likesCount, int otherLikesCount) {
+            return (double) common / (likesCount + otherLikesCount - common);
+        }
+    },
+    COSINE {
+        @Override
+        public double similarity(int common, int likesCount, int otherLikesCount) {
+            return common / Math.sqrt((double) likesCount * otherLikesCount);
+        }
+    };
+
+    /**
+     * @param common          кол-во общих лайков
+     * @param likesCount      кол-во лайков пользователя
+     * @param otherLikesCount кол-во лайков другого пользователя
+     * @return сходство от 0 до 1
+     */
+    public abstract double similarity(int common, int likesCount, int otherLikesCount);
+}
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.utils.PrefixTopKTrie;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс-сервис автодополнения названий фильмов. Держит в памяти префиксное дерево с самыми популярными
+ * фильмами в каждом узле, строит его из базы при старте и обновляет на изменения фильмов и лайков.
+ * Рядом с деревом хранятся сами фильмы для ответа, собранные из событий: названия рейтингов и жанров
+ * берутся из справочников, загруженных при старте, так что ни запросы автодополнения, ни обработка
+ * событий в базу не ходят.
+ */
+@Slf4j
+@Service
+public class AutocompleteService {
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+    private final int topK;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PrefixTopKTrie trie;
+    private Map<Long, Film> films = new HashMap<>();
+    private final Map<Integer, MpaRating> mpaRatings = new HashMap<>();
+    private final Map<Integer, Genre> genres = new HashMap<>();
+
+    @Autowired
+    AutocompleteService(@Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                        @Qualifier("databaseFilmStorage") LikeStorage likeStorage,
+                        MpaStorage mpaStorage,
+                        GenreStorage genreStorage,
+                        @Value("${films.autocomplete.top-k:10}") int topK) {
+        this.filmStorage = filmStorage;
+        this.likeStorage = likeStorage;
+        this.mpaStorage = mpaStorage;
+        this.genreStorage = genreStorage;
+        this.topK = topK;
+        this.trie = new PrefixTopKTrie(topK);
+    }
+
+    @PostConstruct
+    void load() {
+        mpaStorage.getAll().forEach(mpa -> mpaRatings.put(mpa.getId(), mpa));
+        genreStorage.getAll().forEach(genre -> genres.put(genre.getId(), genre));
+
+        final PrefixTopKTrie loaded = new PrefixTopKTrie(topK);
+        final Map<Long, Film> loadedFilms = new HashMap<>();
+        final Map<Long, Long> likesCounts = likeStorage.getLikesCounts();
+        filmStorage.getAll().forEach(film -> {
+            loaded.add(film.getId(), film.getName(), likesCounts.getOrDefault(film.getId(), 0L));
+            loadedFilms.put(film.getId(), film);
+        });
+
+        lock.writeLock().lock();
+        try {
+            trie = loaded;
+            films = loadedFilms;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("AUTOCOMPLETE TRIE BUILT: {} FILMS", loaded.size());
+    }
+
+    /**
+     * Возвращает самые популярные фильмы, название которых начинается с префикса.
+     *
+     * @param prefix префикс названия без учёта регистра
+     * @param count  максимальное кол-во фильмов, не больше films.autocomplete.top-k
+     * @return фильмы по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     */
+    public List<Film> complete(final String prefix, final Integer count) {
+        lock.readLock().lock();
+        try {
+            final long[] ids = trie.top(prefix, count);
+            final List<Film> found = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                found.add(films.get(id));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmAdded(FilmAddedEvent event) {
+        addFilm(event.getFilm(), 0);
+    }
+
+    @EventListener
+    public void handleFilmsAdded(FilmsAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getFilms().forEach(film -> putFilm(film, 0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmUpdated(FilmUpdatedEvent event) {
+        addFilm(event.getFilm(), -1);
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            trie.remove(event.getFilmId());
+            films.remove(event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+        changeLikes(event.getFilmId(), 1);
+    }
+
+    @EventListener
+    public void handleFilmLikeRemoved(FilmLikeRemovedEvent event) {
+        changeLikes(event.getFilmId(), -1);
+    }
+
+    /**
+     * Лайки удалённого пользователя удаляются из базы каскадно, поэтому у фильмов из события
+     * кол-во лайков уменьшается на один.
+     */
+    @EventListener
+    public void handleUserRemoved(UserRemovedEvent event) {
+        event.getLikedFilmsIds().forEach(filmId -> changeLikes(filmId, -1));
+    }
+
+    private void addFilm(Film film, long likes) {
+        lock.writeLock().lock();
+        try {
+            putFilm(film, likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет или изменяет фильм. Вызывается под блокировкой записи.
+     *
+     * @param film  фильм из события
+     * @param likes кол-во лайков или -1, чтобы сохранить текущее
+     */
+    private void putFilm(Film film, long likes) {
+        trie.add(film.getId(), film.getName(), likes >= 0 ? likes : trie.getLikes(film.getId()));
+        films.put(film.getId(), withTitles(film));
+    }
+
+    /**
+     * Приводит фильм из события к виду, в котором его отдаёт хранилище: в событии он в том виде, в каком
+     * пришёл от клиента, например без названий рейтинга и жанров.
+     *
+     * @param film фильм из события
+     * @return фильм с названиями рейтинга и жанров
+     */
+    private Film withTitles(Film film) {
+        final Set<Genre> filmGenres = new HashSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().forEach(genre -> filmGenres.add(genres.getOrDefault(genre.getId(), genre)));
+        }
+        return film.toBuilder()
+                .mpa(mpaRatings.getOrDefault(film.getMpa().getId(), film.getMpa()))
+                .genres(filmGenres.isEmpty() ? null : filmGenres)
+                .build();
+    }
+
+    private void changeLikes(Long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            trie.setLikes(filmId, Math.max(0, trie.getLikes(filmId) + delta));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Класс-сервис массового импорта фильмов из NDJSON (один фильм в формате JSON на строку).
+ * Поток читается построчно, каждая строка проверяется теми же правилами, что и POST /films, а корректные
+ * фильмы записываются пакетами по chunk-size штук, так что в памяти держится не больше одного пакета.
+ * Если пакет не записался (например, повторный id или несуществующий рейтинг), его фильмы записываются
+ * по одному, чтобы ошибка попала в отчёт к своей строке.
+ */
+@Slf4j
+@Service
+public class FilmImportService {
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    @Autowired
+    FilmImportService(FilmService filmService,
+                      ObjectMapper objectMapper,
+                      Validator validator,
+                      @Value("${films.import.chunk-size:1000}") int chunkSize,
+                      @Value("${films.import.max-errors:1000}") int maxErrors) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Импортирует фильмы. Пустые строки пропускаются.
+     *
+     * @param ndjson поток строк с фильмами в формате JSON
+     * @return кол-во добавленных фильмов и ошибки по номерам строк
+     * @throws IOException если поток не читается
+     */
+    public FilmImportReport importFilms(InputStream ndjson) throws IOException {
+        final Report report = new Report();
+        final List<Film> chunk = new ArrayList<>(chunkSize);
+        final List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+
+            try {
+                chunk.add(parse(line));
+                chunkLines.add(lineNumber);
+            } catch (JsonProcessingException e) {
+                report.fail(lineNumber, e.getOriginalMessage());
+            } catch (ValidationException e) {
+                report.fail(lineNumber, e.getMessage());
+            }
+
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, chunkLines, report);
+            }
+        }
+        flush(chunk, chunkLines, report);
+
+        log.info("IMPORTED {} FILMS, {} LINES FAILED", report.imported, report.failed);
+        return new FilmImportReport(report.imported, report.failed, report.errors);
+    }
+
+    private Film parse(String line) throws JsonProcessingException {
+        final Film film = objectMapper.readValue(line, Film.class);
+        final Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(x -> x.getPropertyPath() + " " + x.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return FilmValidator.validate(film);
+    }
+
+    private void flush(List<Film> chunk, List<Long> chunkLines, Report report) {
+        if (chunk.isEmpty()) return;
+
+        try {
+            filmService.addFilms(chunk);
+            report.imported += chunk.size();
+        } catch (DataAccessException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    filmService.addFilm(chunk.get(i));
+                    report.imported++;
+                } catch (DataAccessException rowException) {
+                    report.fail(chunkLines.get(i), rowException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private class Report {
+        private long imported;
+        private long failed;
+        private final List<FilmImportReport.LineError> errors = new ArrayList<>();
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new FilmImportReport.LineError(line, message));
+        }
+    }
+}
@@ -2,18 +2,20 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.events.*;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.EventOperations;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.NoSuchElementException;
-import java.util.Set;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Класс-сервис для управления фильмами.
@@ -24,17 +26,41 @@ public class FilmService {
     private final UserService userService;
     private final LikeStorage likeStorage;
     private final ApplicationEventPublisher publisher;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final boolean leaderboardEnabled;
+    private final TitleSearchService titleSearchService;
+    private final boolean titleIndexEnabled;
+    private final LikeIngestionService likeIngestionService;
+    private final boolean likeIngestionEnabled;
+    private final LikeMembershipFilter likeMembershipFilter;
+    private final TrendingService trendingService;
 
     @Autowired
-    FilmService(FilmStorage databaseFilmStorage,
+    FilmService(@Qualifier("cachedFilmStorage") FilmStorage filmStorage,
                 @Qualifier("databaseFilmStorage") LikeStorage databaseLikeStorage,
                 UserService userService,
-                ApplicationEventPublisher publisher
+                ApplicationEventPublisher publisher,
+                PopularityLeaderboard popularityLeaderboard,
+                @Value("${films.popular.leaderboard.enabled:true}") boolean leaderboardEnabled,
+                TitleSearchService titleSearchService,
+                @Value("${films.search.index.enabled:true}") boolean titleIndexEnabled,
+                LikeIngestionService likeIngestionService,
+                @Value("${films.likes.ingestion.enabled:false}") boolean likeIngestionEnabled,
+                LikeMembershipFilter likeMembershipFilter,
+                TrendingService trendingService
     ) {
-        this.filmStorage = databaseFilmStorage;
+        this.filmStorage = filmStorage;
         this.userService = userService;
         this.likeStorage = databaseLikeStorage;
         this.publisher = publisher;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.leaderboardEnabled = leaderboardEnabled;
+        this.titleSearchService = titleSearchService;
+        this.titleIndexEnabled = titleIndexEnabled;
+        this.likeIngestionService = likeIngestionService;
+        this.likeIngestionEnabled = likeIngestionEnabled;
+        this.likeMembershipFilter = likeMembershipFilter;
+        this.trendingService = trendingService;
     }
 
     /**
@@ -46,6 +72,26 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
+    /**
+     * Получает страницу фильмов по возрастанию идентификатора.
+     *
+     * @param after идентификатор последнего фильма предыдущей страницы или null для первой страницы
+     * @param limit максимальное кол-во фильмов
+     * @return фильмы с идентификатором больше after
+     */
+    public List<Film> getFilmsPage(final Long after, final int limit) {
+        return filmStorage.getPage(after, limit);
+    }
+
+    /**
+     * Передаёт все фильмы по возрастанию идентификатора по одному.
+     *
+     * @param action обработчик фильма
+     */
+    public void forEachFilm(final Consumer<Film> action) {
+        filmStorage.forEach(action);
+    }
+
     /**
      * Получает фильм по идентификатору.
      *
@@ -59,6 +105,16 @@ public class FilmService {
         return film;
     }
 
+    /**
+     * Получает фильмы по списку идентификаторов одним обращением к хранилищу.
+     *
+     * @param ids уникальные идентификаторы фильмов
+     * @return фильмы в порядке переданных идентификаторов, несуществующие пропускаются
+     */
+    public List<Film> getFilms(final Collection<Long> ids) {
+        return filmStorage.getAll(ids);
+    }
+
     /**
      * Добавляет фильм.
      *
@@ -66,6 +122,17 @@ public class FilmService {
      */
     public void addFilm(final Film newFilm) {
         filmStorage.add(newFilm);
+        publisher.publishEvent(new FilmAddedEvent(this, newFilm));
+    }
+
+    /**
+     * Добавляет фильмы одной операцией хранилища и публикует одно событие на все фильмы.
+     *
+     * @param newFilms фильмы
+     */
+    public void addFilms(final Collection<Film> newFilms) {
+        filmStorage.addAll(newFilms);
+        publisher.publishEvent(new FilmsAddedEvent(this, List.copyOf(newFilms)));
     }
 
     /**
@@ -78,6 +145,7 @@ public class FilmService {
         final Film film = getFilm(updatedFilm.getId());
         if (updatedFilm.equals(film)) return;
         filmStorage.update(updatedFilm);
+        publisher.publishEvent(new FilmUpdatedEvent(this, updatedFilm));
     }
 
     /**
@@ -87,62 +155,112 @@ public class FilmService {
      * @throws NoSuchElementException - если фильма не существует.
      */
     public void removeFilm(final Long id) {
-        filmStorage.remove(getFilm(id));
+        final Film film = getFilm(id);
+        final Set<Long> likedUsersIds = likeStorage.getUsersIdsByFilmsIds(List.of(id));
+        filmStorage.remove(film);
+        publisher.publishEvent(new FilmRemovedEvent(this, id, likedUsersIds));
     }
 
     /**
-     * Добавляет лайк пользователя к фильму.
+     * Добавляет лайк пользователя к фильму. Повторный лайк ничего не меняет; если он виден по фильтру лайков
+     * в памяти, база не запрашивается. Если включена отложенная запись лайков, лайк ставится в буфер
+     * {@link LikeIngestionService}, а событие публикуется после записи. Фильтр в этом режиме не используется:
+     * он не видит операций, ещё лежащих в буфере, а повторы в пачке и так отсекаются при записи.
+     * Существование фильма и пользователя проверяется синхронно и в этом режиме (фильм - через кэш фильмов,
+     * пользователь - поиском по первичному ключу), чтобы несуществующий id давал 404, а не молча отброшенный лайк.
      *
      * @param id     уникальный идентификатор фильма
      * @param userId уникальный идентификатор пользователя
      * @throws NoSuchElementException - если фильма не существует.
      */
     public void addLikeToFilm(final Long id, final Long userId) {
-        likeStorage.save(Like.builder().film(getFilm(id)).user(userService.getUser(userId)).build());
-        publisher.publishEvent(new FilmLikeAddedEvent(this));
+        final Like like = Like.builder().film(getFilm(id)).user(userService.getUser(userId)).build();
+        if (likeIngestionEnabled) {
+            likeIngestionService.submit(id, userId, EventOperations.ADD);
+        } else if (!likeMembershipFilter.isLiked(id, userId) && likeStorage.save(like)) {
+            publisher.publishEvent(new FilmLikeAddedEvent(this, id, userId, Instant.now().toEpochMilli()));
+        }
     }
 
     /**
-     * Удаляет лайк пользователя с фильма.
+     * Удаляет лайк пользователя с фильма. Удаление несуществующего лайка ничего не меняет. Фильтр лайков
+     * здесь не используется: он обновляется после записи и может не видеть только что поставленный лайк.
      *
      * @param id     уникальный идентификатор фильма
      * @param userId уникальный идентификатор пользователя
      * @throws NoSuchElementException - если фильма не существует.
      */
     public void removeLikeFromFilm(final Long id, final Long userId) {
-        likeStorage.delete(Like.builder().film(getFilm(id)).user(userService.getUser(userId)).build());
+        final Like like = Like.builder().film(getFilm(id)).user(userService.getUser(userId)).build();
+        if (likeIngestionEnabled) {
+            likeIngestionService.submit(id, userId, EventOperations.REMOVE);
+        } else if (likeStorage.delete(like)) {
+            publisher.publishEvent(new FilmLikeRemovedEvent(this, id, userId, Instant.now().toEpochMilli()));
+        }
     }
 
     /**
-     * Поиск фильма по фрагменту названия независимо от регистра.
+     * Поиск фильма по названию независимо от регистра. Режим "title" ищет фрагмент названия (через индекс
+     * триграмм, если он включён), режим "fuzzy" - похожие названия с опечатками, всегда через индекс.
      *
      * @param substring фрагмент
+     * @param title     режим поиска: title или fuzzy
      */
     public Collection<Film> searchFilmByTitle(final String substring, final String title) {
-        if (substring == null || !title.equals("title")) {
+        if (substring == null) {
             return null;
         }
-        return filmStorage.searchFilmByTitle(substring);
+        switch (title) {
+            case "title":
+                if (titleIndexEnabled) {
+                    return filmStorage.getAll(titleSearchService.search(substring));
+                }
+                return filmStorage.searchFilmByTitle(substring);
+            case "fuzzy":
+                return filmStorage.getAll(titleSearchService.fuzzySearch(substring));
+            default:
+                return null;
+        }
     }
 
+    /**
+     * Получает фильмы, которые понравились обоим пользователям.
+     *
+     * @param userId   уникальный идентификатор пользователя
+     * @param friendId уникальный идентификатор друга
+     * @return фильмы по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     * @throws NoSuchElementException - если пользователя не существует.
+     */
     public Collection<Film> getCommonFilms(final Long userId, final Long friendId) {
-        if (userService.getUser(userId) == null || userService.getUser(friendId) == null) {
-            throw new NoSuchElementException();
-        }
+        userService.getUser(userId);
+        userService.getUser(friendId);
+        return likeStorage.getCommonFilms(userId, friendId);
+    }
 
-        Set<Film> intersection = new HashSet<>(likeStorage.getPopularFilmByUserId(friendId));
-        intersection.retainAll(likeStorage.getPopularFilmByUserId(userId));
-        return intersection;
+    /**
+     * Получает фильмы с наибольшим кол-вом недавних лайков, свежие лайки весят больше старых.
+     *
+     * @param window окно, например 24h
+     * @param count  максимальное кол-во фильмов
+     * @return фильмы по убыванию веса лайков за окно
+     * @throws ValidationException - если окно задано неверно.
+     */
+    public Collection<Film> getTrendingFilms(final String window, final int count) {
+        return filmStorage.getAll(trendingService.getTrending(window, count));
     }
 
     /**
-     * Поиск фильма по жанру и году выпуска
+     * Поиск самых популярных фильмов по жанру и году выпуска. Если включён рейтинг популярности в памяти,
+     * идентификаторы берутся из него, а не из базы.
      *
      * @param genreId id жанра
      * @param year    год выпуска
      * @param limit   количество отображаемых фильмов
      */
     public Collection<Film> searchFilmByGenreAndYear(Integer limit, Integer genreId, Integer year) {
+        if (leaderboardEnabled) {
+            return filmStorage.getAll(popularityLeaderboard.getTop(limit != null ? limit : 10, genreId, year));
+        }
         if (genreId == null && year == null) {
             return likeStorage.getPopularFilms(limit != null ? limit : 10);
         }
@@ -0,0 +1,216 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.events.FilmLikeRemovedEvent;
+import ru.yandex.practicum.filmorate.exceptions.LikeBufferFullException;
+import ru.yandex.practicum.filmorate.model.EventOperations;
+import ru.yandex.practicum.filmorate.model.LikeAckMode;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Отложенная запись лайков (write-behind). Лайки и их удаления ставятся в ограниченный буфер, а единственный
+ * фоновый поток забирает из него до batch-size операций и записывает их одной транзакцией вместе со
+ * счётчиками и событиями (group commit): пока идёт запись одной пачки, следующая набирается в буфере.
+ * Удаления идут через тот же буфер, чтобы сохранить порядок операций пользователя.
+ * <p>
+ * В режиме {@link LikeAckMode#ENQUEUE} ответ отдаётся сразу после постановки в буфер, в режиме
+ * {@link LikeAckMode#FLUSH} - после фиксации пачки. Если буфер не освобождается за enqueue-timeout-ms,
+ * операция отклоняется с {@link LikeBufferFullException}. События об изменении лайков публикуются
+ * после записи и только для изменивших что-то операций.
+ * <p>
+ * Метрики: {@code likes.ingestion.buffer.size} - кол-во операций в буфере, {@code likes.ingestion.flush} -
+ * длительность записи пачки, {@code likes.ingestion.rejected} - отклонённые из-за переполнения операции.
+ * Фоновый поток запускается, только если отложенная запись включена свойством films.likes.ingestion.enabled.
+ */
+@Slf4j
+@Service
+public class LikeIngestionService {
+    private final LikeStorage likeStorage;
+    private final ApplicationEventPublisher publisher;
+    private final boolean enabled;
+    private final LikeAckMode ackMode;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+
+    private final BlockingQueue<Pending> buffer;
+    private final Timer flushTimer;
+    private final Counter rejectedCounter;
+    private final Thread writer = new Thread(this::run, "likes-writer");
+    private volatile boolean running;
+
+    @Autowired
+    LikeIngestionService(@Qualifier("databaseFilmStorage") LikeStorage likeStorage,
+                         ApplicationEventPublisher publisher,
+                         MeterRegistry meterRegistry,
+                         @Value("${films.likes.ingestion.enabled:false}") boolean enabled,
+                         @Value("${films.likes.ingestion.ack:FLUSH}") LikeAckMode ackMode,
+                         @Value("${films.likes.ingestion.buffer-size:10000}") int bufferSize,
+                         @Value("${films.likes.ingestion.batch-size:500}") int batchSize,
+                         @Value("${films.likes.ingestion.enqueue-timeout-ms:100}") long enqueueTimeoutMs) {
+        this.likeStorage = likeStorage;
+        this.publisher = publisher;
+        this.enabled = enabled;
+        this.ackMode = ackMode;
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        Gauge.builder("likes.ingestion.buffer.size", buffer, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = meterRegistry.timer("likes.ingestion.flush");
+        this.rejectedCounter = meterRegistry.counter("likes.ingestion.rejected");
+        writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Принимает добавление или удаление лайка. Существование фильма и пользователя проверяет вызывающий.
+     *
+     * @param filmId    уникальный идентификатор фильма
+     * @param userId    уникальный идентификатор пользователя
+     * @param operation ADD или REMOVE
+     * @throws LikeBufferFullException - если буфер переполнен.
+     */
+    public void submit(final Long filmId, final Long userId, final EventOperations operation) {
+        final Pending pending = new Pending(new LikeOperation(filmId, userId, operation, Instant.now().toEpochMilli()));
+        try {
+            if (!running || !buffer.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new LikeBufferFullException("like buffer is full");
+            }
+            if (ackMode == LikeAckMode.FLUSH) pending.written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Дожидается записи всех принятых к этому моменту операций.
+     */
+    public void flush() {
+        if (!enabled) return;
+        final Pending marker = new Pending(null);
+        try {
+            buffer.put(marker);
+            marker.written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!enabled) return;
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            log.warn("LIKES WRITER DIDN'T FINISH IN TIME, {} OPERATIONS DROPPED", buffer.size());
+        }
+    }
+
+    private void run() {
+        final List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                final Pending first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("LIKES WRITER FAILED ON {} OPERATIONS", batch.size(), e);
+                batch.forEach(x -> x.written.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        final List<Pending> pending = new ArrayList<>(batch.size());
+        final List<LikeOperation> operations = new ArrayList<>(batch.size());
+        for (Pending x : batch) {
+            if (x.operation == null) continue;
+            pending.add(x);
+            operations.add(x.operation);
+        }
+        if (operations.isEmpty()) {
+            batch.forEach(x -> x.written.complete(null));
+            return;
+        }
+
+        boolean[] applied;
+        try {
+            applied = flushTimer.record(() -> likeStorage.applyAll(operations));
+        } catch (DataAccessException e) {
+            // пачка откатилась целиком (например, фильм удалили, пока лайк ждал в буфере) - пишем по одной
+            applied = new boolean[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                try {
+                    applied[i] = likeStorage.applyAll(List.of(operations.get(i)))[0];
+                } catch (DataAccessException rowException) {
+                    log.warn("LIKE {} DROPPED: {}", operations.get(i), rowException.getMostSpecificCause().getMessage());
+                    pending.get(i).written.completeExceptionally(rowException);
+                }
+            }
+        }
+
+        // лайки уже записаны: ошибка слушателя не должна ни отменять ответ клиенту, ни мешать остальным событиям
+        for (int i = 0; i < operations.size(); i++) {
+            if (applied[i]) publish(operations.get(i));
+        }
+        batch.forEach(x -> x.written.complete(null));
+    }
+
+    private void publish(LikeOperation like) {
+        try {
+            publisher.publishEvent(like.getOperation() == EventOperations.ADD
+                    ? new FilmLikeAddedEvent(this, like.getFilmId(), like.getUserId(), like.getTimestamp())
+                    : new FilmLikeRemovedEvent(this, like.getFilmId(), like.getUserId(), like.getTimestamp()));
+        } catch (RuntimeException e) {
+            log.error("LIKE {} EVENT LISTENER FAILED", like, e);
+        }
+    }
+
+    private static class Pending {
+        private final LikeOperation operation;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Pending(LikeOperation operation) {
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.events.FilmLikeRemovedEvent;
+import ru.yandex.practicum.filmorate.events.FilmRemovedEvent;
+import ru.yandex.practicum.filmorate.events.UserRemovedEvent;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.utils.FilmUserKey;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
+import ru.yandex.practicum.filmorate.utils.ShardedLongSet;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Точное множество всех лайков в памяти (пара фильм-пользователь упакована в long) для отсечения повторных
+ * лайков без обращения к базе. Загружается из базы при старте и обновляется по событиям изменения лайков,
+ * удаления фильма и пользователя, т.е. отражает уже записанное состояние с небольшим отставанием, поэтому
+ * годится только для синхронной записи лайков. По отставшему ответу можно пропустить только повторный лайк:
+ * удаления всегда идут в базу, иначе удаление, совпавшее по времени с записью лайка, потеряется.
+ * Пары, не помещающиеся в long (id больше 2^32), не хранятся, и операции с ними всегда идут в базу.
+ */
+@Slf4j
+@Service
+public class LikeMembershipFilter {
+    private final LikeStorage likeStorage;
+    private final boolean enabled;
+    private final ShardedLongSet likes;
+    private final Counter hitsCounter;
+
+    @Autowired
+    LikeMembershipFilter(@Qualifier("databaseFilmStorage") LikeStorage likeStorage,
+                         MeterRegistry meterRegistry,
+                         @Value("${films.likes.filter.enabled:true}") boolean enabled,
+                         @Value("${films.likes.filter.shards:64}") int shards) {
+        this.likeStorage = likeStorage;
+        this.enabled = enabled;
+        this.likes = new ShardedLongSet(shards);
+
+        Gauge.builder("films.likes.filter.size", likes, ShardedLongSet::size).register(meterRegistry);
+        this.hitsCounter = meterRegistry.counter("films.likes.filter.hits");
+    }
+
+    @PostConstruct
+    void load() {
+        if (!enabled) return;
+        final LikeMatrix matrix = likeStorage.getLikeMatrix();
+        for (int user = 0; user < matrix.getUsersCount(); user++) {
+            final long userId = matrix.getUserId(user);
+            matrix.getUserFilms(user).forEach((int film) -> add(matrix.getFilmId(film), userId));
+        }
+        log.info("LIKE FILTER LOADED: {} LIKES", likes.size());
+    }
+
+    /**
+     * Проверяет, что лайк уже поставлен и повторный лайк можно не записывать.
+     *
+     * @param filmId уникальный идентификатор фильма
+     * @param userId уникальный идентификатор пользователя
+     * @return true если лайк уже записан
+     */
+    public boolean isLiked(final Long filmId, final Long userId) {
+        if (!enabled || !FilmUserKey.fits(filmId, userId)) return false;
+        final boolean liked = likes.contains(FilmUserKey.pack(filmId, userId));
+        if (liked) hitsCounter.increment();
+        return liked;
+    }
+
+    @EventListener
+    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+        if (enabled) add(event.getFilmId(), event.getUserId());
+    }
+
+    @EventListener
+    public void handleFilmLikeRemoved(FilmLikeRemovedEvent event) {
+        if (enabled) remove(event.getFilmId(), event.getUserId());
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        if (enabled) event.getLikedUsersIds().forEach(userId -> remove(event.getFilmId(), userId));
+    }
+
+    @EventListener
+    public void handleUserRemoved(UserRemovedEvent event) {
+        if (enabled) event.getLikedFilmsIds().forEach(filmId -> remove(filmId, event.getUserId()));
+    }
+
+    private void add(long filmId, long userId) {
+        if (FilmUserKey.fits(filmId, userId)) likes.add(FilmUserKey.pack(filmId, userId));
+    }
+
+    private void remove(long filmId, long userId) {
+        if (FilmUserKey.fits(filmId, userId)) likes.remove(FilmUserKey.pack(filmId, userId));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+/**
+ * Класс-сервис проверки согласованности счётчиков лайков фильмов (films.likes_count) с таблицей лайков.
+ * При старте заполняет счётчики для уже существующих лайков, затем периодически исправляет расхождения.
+ */
+@Slf4j
+@Service
+public class LikesCountChecker {
+    private final LikeStorage likeStorage;
+
+    LikesCountChecker(@Qualifier("databaseFilmStorage") LikeStorage likeStorage) {
+        this.likeStorage = likeStorage;
+    }
+
+    /**
+     * Заполняет счётчики лайков при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        final int fixed = likeStorage.recountLikes();
+        if (fixed > 0) log.info("LIKES COUNTERS BACKFILLED FOR {} FILMS", fixed);
+    }
+
+    /**
+     * Периодически сверяет счётчики лайков с таблицей лайков и исправляет расхождения.
+     */
+    @Scheduled(initialDelayString = "${films.likes-count.check-interval-ms:3600000}",
+            fixedDelayString = "${films.likes-count.check-interval-ms:3600000}")
+    public void check() {
+        final int fixed = likeStorage.recountLikes();
+        if (fixed > 0) log.warn("LIKES COUNTERS OUT OF SYNC FOR {} FILMS, FIXED", fixed);
+    }
+}
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг популярности фильмов в памяти. Для каждого среза (жанр, год), включая срезы "любой жанр" и
+ * "любой год", хранит фильмы упорядоченными по убыванию кол-ва лайков, при равенстве - по возрастанию id.
+ * Строится из базы при старте, на каждый лайк и его удаление фильм переставляется в своих срезах за O(log n),
+ * так что топ-N читается без запросов к базе.
+ */
+@Service
+public class PopularityLeaderboard {
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingLong(Rank::getLikes).reversed()
+            .thenComparingLong(Rank::getFilmId);
+
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, FilmRank> films = new HashMap<>();
+    private final Map<Slice, TreeSet<Rank>> slices = new HashMap<>();
+
+    @Autowired
+    PopularityLeaderboard(@Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                          @Qualifier("databaseFilmStorage") LikeStorage likeStorage) {
+        this.filmStorage = filmStorage;
+        this.likeStorage = likeStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            slices.clear();
+            final Map<Long, Long> likesCounts = likeStorage.getLikesCounts();
+            filmStorage.getAll().forEach(film -> addFilm(film, likesCounts.getOrDefault(film.getId(), 0L)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает самые популярные фильмы среза.
+     *
+     * @param limit   максимальное кол-во фильмов
+     * @param genreId id жанра или null для любого жанра
+     * @param year    год выпуска или null для любого года
+     * @return идентификаторы фильмов по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     */
+    public List<Long> getTop(int limit, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            final TreeSet<Rank> ranks = slices.get(new Slice(genreId, year));
+            if (ranks == null) return new ArrayList<>();
+
+            final List<Long> top = new ArrayList<>(Math.min(limit, ranks.size()));
+            for (Iterator<Rank> it = ranks.iterator(); it.hasNext() && top.size() < limit; ) {
+                top.add(it.next().getFilmId());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает кол-во лайков фильмов.
+     *
+     * @param filmsIds идентификаторы фильмов
+     * @return кол-во лайков в том же порядке, 0 для неизвестных фильмов
+     */
+    public long[] getLikes(long[] filmsIds) {
+        lock.readLock().lock();
+        try {
+            final long[] likes = new long[filmsIds.length];
+            for (int i = 0; i < filmsIds.length; i++) {
+                final FilmRank film = films.get(filmsIds[i]);
+                likes[i] = film == null ? 0 : film.getLikes();
+            }
+            return likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmAdded(FilmAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addFilm(event.getFilm(), 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmsAdded(FilmsAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getFilms().forEach(film -> addFilm(film, 0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmUpdated(FilmUpdatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            final FilmRank old = removeFilm(event.getFilm().getId());
+            addFilm(event.getFilm(), old == null ? 0 : old.getLikes());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+        changeLikes(event.getFilmId(), 1);
+    }
+
+    @EventListener
+    public void handleFilmLikeRemoved(FilmLikeRemovedEvent event) {
+        changeLikes(event.getFilmId(), -1);
+    }
+
+    /**
+     * Лайки удалённого пользователя удаляются из базы каскадно, поэтому у фильмов из события
+     * кол-во лайков уменьшается на один.
+     */
+    @EventListener
+    public void handleUserRemoved(UserRemovedEvent event) {
+        event.getLikedFilmsIds().forEach(filmId -> changeLikes(filmId, -1));
+    }
+
+    private void changeLikes(Long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            final FilmRank film = films.get(filmId);
+            if (film == null) return;
+
+            final Rank old = film.toRank();
+            final FilmRank updated = new FilmRank(film.getFilmId(), film.getYear(), film.getGenresIds(),
+                    Math.max(0, film.getLikes() + delta));
+            final Rank rank = updated.toRank();
+            for (Slice slice : film.getSlices()) {
+                final TreeSet<Rank> ranks = slices.get(slice);
+                ranks.remove(old);
+                ranks.add(rank);
+            }
+            films.put(filmId, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addFilm(Film film, long likes) {
+        final Set<Integer> genresIds = new HashSet<>();
+        if (film.getGenres() != null) film.getGenres().stream().map(Genre::getId).forEach(genresIds::add);
+
+        final FilmRank filmRank = new FilmRank(film.getId(), film.getReleaseDate().getYear(), genresIds, likes);
+        films.put(film.getId(), filmRank);
+        final Rank rank = filmRank.toRank();
+        filmRank.getSlices().forEach(slice -> slices.computeIfAbsent(slice, k -> new TreeSet<>(RANK_ORDER)).add(rank));
+    }
+
+    private FilmRank removeFilm(Long filmId) {
+        final FilmRank film = films.remove(filmId);
+        if (film == null) return null;
+
+        final Rank rank = film.toRank();
+        film.getSlices().forEach(slice -> slices.computeIfPresent(slice, (k, ranks) -> {
+            ranks.remove(rank);
+            return ranks.isEmpty() ? null : ranks;
+        }));
+        return film;
+    }
+
+    @Value
+    private static class Slice {
+        Integer genreId;
+        Integer year;
+    }
+
+    @Value
+    private static class Rank {
+        long filmId;
+        long likes;
+    }
+
+    @Value
+    private static class FilmRank {
+        long filmId;
+        int year;
+        Set<Integer> genresIds;
+        long likes;
+
+        Rank toRank() {
+            return new Rank(filmId, likes);
+        }
+
+        List<Slice> getSlices() {
+            final List<Slice> filmSlices = new ArrayList<>(2 * genresIds.size() + 2);
+            filmSlices.add(new Slice(null, null));
+            filmSlices.add(new Slice(null, year));
+            for (Integer genreId : genresIds) {
+                filmSlices.add(new Slice(genreId, null));
+                filmSlices.add(new Slice(genreId, year));
+            }
+            return filmSlices;
+        }
+    }
+}
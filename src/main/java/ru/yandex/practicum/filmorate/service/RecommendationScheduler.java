@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Планировщик фонового пересчёта рекомендаций. Снимает пересчёт с потока HTTP-запроса, объединяет пачку
+ * лайков/удалений лайков за время задержки в один запуск и гарантирует единственного писателя в таблицу
+ * рекомендаций: все запуски выполняются в одном потоке.
+ * <p>
+ * Метрики: {@code recommendations.queue.size} - кол-во пользователей в очереди,
+ * {@code recommendations.queue.lag} - возраст самого старого необработанного события (мс),
+ * {@code recommendations.recompute} - длительность запусков, {@code recommendations.recompute.lag} - задержка
+ * между первым событием пачки и началом её обработки.
+ */
+@Slf4j
+@Service
+public class RecommendationScheduler {
+    private final RecommendationService recommendationService;
+    private final int maxSizeOfRecommendations;
+    private final long delayMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "recommendations-recompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer recomputeTimer;
+    private final Timer lagTimer;
+
+    // изменённые лайки ожидающие пересчёта, защищены this
+    private Map<Long, Set<Long>> pending = new HashMap<>();
+    private long pendingSinceNanos;
+    private boolean scheduled;
+
+    @Autowired
+    RecommendationScheduler(RecommendationService recommendationService,
+                            MeterRegistry meterRegistry,
+                            @Value("${recommendations.max-size:5}") int maxSizeOfRecommendations,
+                            @Value("${recommendations.scheduler.delay-ms:200}") long delayMs) {
+        this.recommendationService = recommendationService;
+        this.maxSizeOfRecommendations = maxSizeOfRecommendations;
+        this.delayMs = delayMs;
+
+        Gauge.builder("recommendations.queue.size", this, RecommendationScheduler::getQueueSize)
+                .register(meterRegistry);
+        Gauge.builder("recommendations.queue.lag", this, RecommendationScheduler::getLagMillis)
+                .baseUnit("milliseconds").register(meterRegistry);
+        this.recomputeTimer = meterRegistry.timer("recommendations.recompute");
+        this.lagTimer = meterRegistry.timer("recommendations.recompute.lag");
+    }
+
+    /**
+     * Ставит пользователя, изменившего лайк, в очередь на пересчёт. Не блокирует вызывающий поток.
+     *
+     * @param event событие изменения лайка
+     */
+    @EventListener
+    public synchronized void handleFilmLikeChanged(FilmLikeEvent event) {
+        if (pending.isEmpty()) pendingSinceNanos = System.nanoTime();
+        pending.computeIfAbsent(event.getUserId(), k -> new HashSet<>()).add(event.getFilmId());
+
+        if (!scheduled) {
+            scheduled = true;
+            executor.schedule(this::run, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Немедленно обрабатывает очередь и дожидается окончания всех запусков.
+     */
+    public void flush() {
+        try {
+            executor.submit(this::run).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("RECOMMENDATIONS RECOMPUTE DIDN'T FINISH IN TIME, {} USERS DROPPED", getQueueSize());
+            executor.shutdownNow();
+        }
+    }
+
+    private void run() {
+        final Map<Long, Set<Long>> batch;
+        final long since;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty()) return;
+            batch = pending;
+            since = pendingSinceNanos;
+            pending = new HashMap<>();
+        }
+
+        lagTimer.record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        try {
+            recomputeTimer.record(() -> recommendationService.update(batch, maxSizeOfRecommendations));
+        } catch (RuntimeException e) {
+            log.error("RECOMMENDATIONS RECOMPUTE FAILED FOR {} USERS", batch.size(), e);
+        }
+    }
+
+    private synchronized double getQueueSize() {
+        return pending.size();
+    }
+
+    private synchronized double getLagMillis() {
+        return pending.isEmpty() ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pendingSinceNanos);
+    }
+}
@@ -1,15 +1,26 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Recommendation;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.model.SimilarityMetric;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.RecommendationStorage;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
+import ru.yandex.practicum.filmorate.utils.MinHashLsh;
+import ru.yandex.practicum.filmorate.utils.ScoreAccumulator;
+import ru.yandex.practicum.filmorate.utils.TopKHeap;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -20,61 +31,229 @@ public class RecommendationService {
     private final LikeStorage likeStorage;
     private final FilmService filmService;
     private final RecommendationStorage recommendationStorage;
+    private final ForkJoinPool pool;
+    private final int shardSize;
+    private final RecommendationMode mode;
+    private final SimilarityMetric similarityMetric;
+    private final int neighboursCount;
+    private final boolean lshEnabled;
+    private final int lshBands;
+    private final int lshRows;
+    private final long lshSeed;
 
     @Autowired
     RecommendationService(
             RecommendationStorage recommendationStorage,
             FilmService filmService,
-            LikeStorage databaseFilmStorage) {
+            LikeStorage databaseFilmStorage,
+            @Value("${recommendations.parallelism:0}") int parallelism,
+            @Value("${recommendations.shard-size:512}") int shardSize,
+            @Value("${recommendations.mode:NAIVE}") RecommendationMode mode,
+            @Value("${recommendations.similarity:JACCARD}") SimilarityMetric similarityMetric,
+            @Value("${recommendations.neighbours:50}") int neighboursCount,
+            @Value("${recommendations.lsh.enabled:false}") boolean lshEnabled,
+            @Value("${recommendations.lsh.bands:20}") int lshBands,
+            @Value("${recommendations.lsh.rows:3}") int lshRows,
+            @Value("${recommendations.lsh.seed:42}") long lshSeed) {
         this.recommendationStorage = recommendationStorage;
         this.likeStorage = databaseFilmStorage;
         this.filmService = filmService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.shardSize = shardSize;
+        this.mode = mode;
+        this.similarityMetric = similarityMetric;
+        this.neighboursCount = neighboursCount;
+        this.lshEnabled = lshEnabled;
+        this.lshBands = lshBands;
+        this.lshRows = lshRows;
+        this.lshSeed = lshSeed;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
     }
 
     /**
-     * Рассчитывает рекомендации для всех пользователей. Наивная реализация O(n^2).
-     * Метод тяжеловесный предполагает запуск в фоне по расписанию или событию.
+     * Рассчитывает рекомендации для всех пользователей по матрице лайков. Кандидаты в похожие пользователи
+     * берутся из столбцов матрицы фильм -> пользователи, поэтому пары без общих лайков не рассматриваются.
+     * Метод тяжеловесный предполагает запуск в фоне по расписанию. Для обработки лайков см. {@link #update}.
      *
      * @param maxSizeOfRecommendations макс. кол-во фильмов для пользователя
      */
     public void compute(int maxSizeOfRecommendations) {
-        Map<Long, Set<Long>> usersLikes = likeStorage.getUsersLikesMap();
-        Map<Long, Set<Long>> similarUsers = new HashMap<>();
-
-        // находим пользователей с макс. кол-вом общих лайков фильмам
-        for (Map.Entry<Long, Set<Long>> i : usersLikes.entrySet()) {
-            for (Map.Entry<Long, Set<Long>> j : usersLikes.entrySet()) {
-                if (Objects.equals(i.getKey(), j.getKey())) continue;
-
-                Set<Long> intersect = new HashSet<>(i.getValue());
-                intersect.retainAll(j.getValue());
-
-                if (intersect.size() > 0 && j.getValue().size() > i.getValue().size()) {
-                    similarUsers.merge(i.getKey(), new HashSet<>(Set.of(j.getKey())), (oldVal, newVal) -> {
-                        oldVal.add(j.getKey());
-                        return oldVal;
-                    });
-                }
-            }
+        save(computeRecommendations(likeStorage.getLikeMatrix(), maxSizeOfRecommendations, true));
+    }
+
+    /**
+     * Рассчитывает рекомендации для всех пользователей матрицы без сохранения. В параллельном режиме
+     * пользователи делятся на шарды, которые считаются в ForkJoinPool; результат не зависит от режима
+     * и упорядочен по возрастанию идентификатора пользователя. Если включён режим LSH
+     * (recommendations.lsh.enabled), кандидаты в соседи берутся из корзин {@link MinHashLsh}, а не из всех
+     * пользователей с общими лайками.
+     *
+     * @param likeMatrix               матрица лайков
+     * @param maxSizeOfRecommendations макс. кол-во фильмов для пользователя
+     * @param parallel                 считать ли шарды параллельно
+     * @return рекомендации с ключом по пользователю
+     */
+    public Map<Long, Set<Long>> computeRecommendations(LikeMatrix likeMatrix, int maxSizeOfRecommendations,
+                                                       boolean parallel) {
+        final IntFunction<RoaringBitmap> candidates = lshEnabled
+                ? MinHashLsh.build(likeMatrix, lshBands, lshRows, lshSeed)::getCandidates
+                : likeMatrix::getCoLikers;
+
+        if (!parallel) {
+            return new ShardTask(likeMatrix, candidates, 0, likeMatrix.getUsersCount(), maxSizeOfRecommendations,
+                    likeMatrix.getUsersCount()).compute();
         }
+        return pool.invoke(new ShardTask(likeMatrix, candidates, 0, likeMatrix.getUsersCount(),
+                maxSizeOfRecommendations, shardSize));
+    }
 
-        // собираем фильмы которые не лайк пользователь, но лайкали друзья
-        Map<Long, Set<Long>> usersRecommendations = new HashMap<>();
-        for (Map.Entry<Long, Set<Long>> i : similarUsers.entrySet()) {
-            Set<Long> currentUserFilms = usersLikes.get(i.getKey());
-            Set<Long> recommendations = new HashSet<>();
-            for (Long userId : i.getValue()) {
-                if (recommendations.size() > maxSizeOfRecommendations) break;
-                Set<Long> userFilms = usersLikes.get(userId);
-                userFilms.removeAll(currentUserFilms);
-                recommendations.addAll(userFilms);
-            }
-            usersRecommendations.put(i.getKey(), recommendations);
+    /**
+     * Пересчитывает рекомендации только для пользователей, которых затронули изменения лайков.
+     * Затронуты сами пользователи и все, кто лайкал хотя бы один фильм из их лайков: только у них
+     * мог измениться набор похожих пользователей. Стоимость зависит от размера окрестности пользователей,
+     * а не от общего кол-ва пользователей.
+     *
+     * @param changedLikes             изменённые лайки: фильмы с ключом по пользователю
+     * @param maxSizeOfRecommendations макс. кол-во фильмов для пользователя
+     */
+    public void update(Map<Long, Set<Long>> changedLikes, int maxSizeOfRecommendations) {
+        final Set<Long> changedFilms = likeStorage.getUsersLikesMap(changedLikes.keySet()).values().stream()
+                .flatMap(Set::stream).collect(Collectors.toSet());
+        changedLikes.values().forEach(changedFilms::addAll);
+
+        final Set<Long> affectedUsers = likeStorage.getUsersIdsByFilmsIds(changedFilms);
+        affectedUsers.addAll(changedLikes.keySet());
+
+        // для затронутых пользователей нужны лайки всех, с кем у них есть хотя бы один общий фильм
+        final Set<Long> affectedFilms = likeStorage.getUsersLikesMap(affectedUsers).values().stream()
+                .flatMap(Set::stream).collect(Collectors.toSet());
+        final Set<Long> neighbourhood = likeStorage.getUsersIdsByFilmsIds(affectedFilms);
+        neighbourhood.addAll(affectedUsers);
+
+        final LikeMatrix.Builder likeMatrix = LikeMatrix.builder();
+        likeStorage.getUsersLikesMap(neighbourhood).forEach((userId, films) ->
+                films.forEach(filmId -> likeMatrix.add(userId, filmId)));
+        save(computeForUsers(likeMatrix.build(), affectedUsers, maxSizeOfRecommendations));
+    }
+
+    /**
+     * Рассчитывает рекомендации для указанных пользователей по матрице лайков.
+     *
+     * @param likeMatrix               матрица лайков, содержащая пользователей и всех их соседей
+     * @param usersIds                 пользователи, для которых считаются рекомендации
+     * @param maxSizeOfRecommendations макс. кол-во фильмов для пользователя
+     * @return рекомендации с ключом по пользователю
+     */
+    private Map<Long, Set<Long>> computeForUsers(LikeMatrix likeMatrix, Collection<Long> usersIds,
+                                                 int maxSizeOfRecommendations) {
+        final Map<Long, Set<Long>> usersRecommendations = new HashMap<>();
+        final ScoringBuffers buffers = newScoringBuffers(likeMatrix, maxSizeOfRecommendations);
+
+        for (Long userId : usersIds) {
+            final int user = likeMatrix.indexOfUser(userId);
+            usersRecommendations.put(userId, user < 0 ? new HashSet<>()
+                    : recommend(likeMatrix, likeMatrix.getCoLikers(user), user, maxSizeOfRecommendations, buffers));
         }
 
-        for (Map.Entry<Long, Set<Long>> i : usersRecommendations.entrySet()) {
-            recommendationStorage.save(Recommendation.builder().whomId(i.getKey()).filmsIds(i.getValue()).build());
+        return usersRecommendations;
+    }
+
+    private Set<Long> recommend(LikeMatrix likeMatrix, RoaringBitmap candidates, int user,
+                                int maxSizeOfRecommendations, ScoringBuffers buffers) {
+        return mode == RecommendationMode.SCORED
+                ? computeScoredForUser(likeMatrix, candidates, user, similarityMetric, buffers)
+                : computeForUser(likeMatrix, candidates, user, maxSizeOfRecommendations);
+    }
+
+    private ScoringBuffers newScoringBuffers(LikeMatrix likeMatrix, int maxSizeOfRecommendations) {
+        return mode == RecommendationMode.SCORED
+                ? new ScoringBuffers(likeMatrix.getFilmsCount(), neighboursCount, maxSizeOfRecommendations)
+                : null;
+    }
+
+    /**
+     * Рассчитывает рекомендации для одного пользователя. Похожими считаются пользователи с хотя бы одним
+     * общим лайком и большим кол-вом лайков.
+     *
+     * @param likeMatrix               матрица лайков
+     * @param candidates               кандидаты в похожие пользователи
+     * @param user                     плотный индекс пользователя в матрице
+     * @param maxSizeOfRecommendations макс. кол-во фильмов для пользователя
+     * @return идентификаторы рекомендованных фильмов
+     */
+    private static Set<Long> computeForUser(LikeMatrix likeMatrix, RoaringBitmap candidates, int user,
+                                            int maxSizeOfRecommendations) {
+        final Set<Long> recommendations = new LinkedHashSet<>();
+        final RoaringBitmap currentUserFilms = likeMatrix.getUserFilms(user);
+        final int currentUserLikesCount = currentUserFilms.getCardinality();
+
+        // индексы плотные и упорядочены как идентификаторы, поэтому обход идёт по возрастанию id
+        for (int similarUser : candidates) {
+            if (recommendations.size() > maxSizeOfRecommendations) break;
+            if (similarUser == user || likeMatrix.getLikesCount(similarUser) <= currentUserLikesCount) continue;
+            if (likeMatrix.getCommonLikesCount(user, similarUser) == 0) continue;
+
+            // фильмы которые не лайк пользователь, но лайкал похожий пользователь
+            RoaringBitmap.andNot(likeMatrix.getUserFilms(similarUser), currentUserFilms)
+                    .forEach((IntConsumer) film -> recommendations.add(likeMatrix.getFilmId(film)));
+        }
+
+        return recommendations;
+    }
+
+    /**
+     * Рассчитывает ранжированные рекомендации для одного пользователя. Соседи - пользователи с общими
+     * лайками, из которых остаются самые похожие по мере сходства. Каждый фильм соседа, не лайкнутый
+     * пользователем, получает вес, равный сумме сходств лайкнувших его соседей; остаются лучшие K фильмов.
+     * Промежуточные веса и кучи переиспользуются между пользователями, поэтому память на пользователя
+     * ограничена K элементами.
+     *
+     * @param likeMatrix       матрица лайков
+     * @param candidates       кандидаты в соседи
+     * @param user             плотный индекс пользователя в матрице
+     * @param similarityMetric мера сходства пользователей
+     * @param buffers          переиспользуемые буферы расчёта
+     * @return идентификаторы рекомендованных фильмов по убыванию веса
+     */
+    private static Set<Long> computeScoredForUser(LikeMatrix likeMatrix, RoaringBitmap candidates, int user,
+                                                  SimilarityMetric similarityMetric, ScoringBuffers buffers) {
+        final RoaringBitmap currentUserFilms = likeMatrix.getUserFilms(user);
+        final int currentUserLikesCount = currentUserFilms.getCardinality();
+
+        buffers.neighbours.clear();
+        for (int neighbour : candidates) {
+            if (neighbour == user) continue;
+            final int common = likeMatrix.getCommonLikesCount(user, neighbour);
+            if (common == 0) continue;
+            buffers.neighbours.offer(neighbour, similarityMetric.similarity(common, currentUserLikesCount,
+                    likeMatrix.getLikesCount(neighbour)));
+        }
+
+        for (int i = 0; i < buffers.neighbours.size(); i++) {
+            final double similarity = buffers.neighbours.getScore(i);
+            likeMatrix.getUserFilms(buffers.neighbours.getId(i)).forEach((IntConsumer) film -> {
+                if (!currentUserFilms.contains(film)) buffers.scores.add(film, similarity);
+            });
+        }
+
+        buffers.films.clear();
+        buffers.scores.drainTo(buffers.films);
+
+        final Set<Long> recommendations = new LinkedHashSet<>();
+        for (int film : buffers.films.toSortedIds()) {
+            recommendations.add(likeMatrix.getFilmId(film));
         }
+        return recommendations;
+    }
+
+    private void save(Map<Long, Set<Long>> usersRecommendations) {
+        recommendationStorage.saveAll(usersRecommendations.entrySet().stream()
+                .map(x -> Recommendation.builder().whomId(x.getKey()).filmsIds(x.getValue()).build())
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -84,12 +263,67 @@ public class RecommendationService {
      * @return список рекомендованных фильмов
      */
     public List<Film> getFilmRecommendationsByUserId(Long id) {
-        return recommendationStorage.getRecommendationByUserId(id).getFilmsIds().stream().map(filmService::getFilm)
-                .collect(Collectors.toList());
+        return filmService.getFilms(recommendationStorage.getRecommendationByUserId(id).getFilmsIds());
     }
 
-    @EventListener
-    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
-        this.compute(5);
+    /**
+     * Задача расчёта рекомендаций для диапазона плотных индексов пользователей. Делит диапазон пополам,
+     * пока он больше размера шарда; результаты сливаются слева направо, поэтому порядок детерминирован.
+     */
+    private class ShardTask extends RecursiveTask<Map<Long, Set<Long>>> {
+        private final LikeMatrix likeMatrix;
+        private final IntFunction<RoaringBitmap> candidates;
+        private final int from;
+        private final int to;
+        private final int maxSizeOfRecommendations;
+        private final int threshold;
+
+        ShardTask(LikeMatrix likeMatrix, IntFunction<RoaringBitmap> candidates, int from, int to,
+                  int maxSizeOfRecommendations, int threshold) {
+            this.likeMatrix = likeMatrix;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.maxSizeOfRecommendations = maxSizeOfRecommendations;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Map<Long, Set<Long>> compute() {
+            if (to - from <= threshold) {
+                final Map<Long, Set<Long>> result = new LinkedHashMap<>();
+                final ScoringBuffers buffers = newScoringBuffers(likeMatrix, maxSizeOfRecommendations);
+                for (int user = from; user < to; user++) {
+                    result.put(likeMatrix.getUserId(user),
+                            recommend(likeMatrix, candidates.apply(user), user, maxSizeOfRecommendations, buffers));
+                }
+                return result;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final ShardTask left = new ShardTask(likeMatrix, candidates, from, middle, maxSizeOfRecommendations,
+                    threshold);
+            final ShardTask right = new ShardTask(likeMatrix, candidates, middle, to, maxSizeOfRecommendations,
+                    threshold);
+            right.fork();
+            final Map<Long, Set<Long>> result = left.compute();
+            result.putAll(right.join());
+            return result;
+        }
+    }
+
+    /**
+     * Буферы ранжированного расчёта, переиспользуемые в пределах одного потока.
+     */
+    private static final class ScoringBuffers {
+        private final TopKHeap neighbours;
+        private final TopKHeap films;
+        private final ScoreAccumulator scores;
+
+        ScoringBuffers(int filmsCount, int neighboursCount, int maxSizeOfRecommendations) {
+            this.neighbours = new TopKHeap(neighboursCount);
+            this.films = new TopKHeap(maxSizeOfRecommendations);
+            this.scores = new ScoreAccumulator(filmsCount);
+        }
     }
 }
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.events.FilmLikeRemovedEvent;
+import ru.yandex.practicum.filmorate.events.FilmRemovedEvent;
+import ru.yandex.practicum.filmorate.events.UserRemovedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Класс-сервис похожих фильмов ("пользователи, лайкнувшие этот фильм, также лайкнули").
+ * Держит в памяти разреженную матрицу совместных лайков фильм x фильм, которая строится из таблицы лайков
+ * при старте и обновляется инкрементально на каждый лайк и его удаление. Сходство фильмов - косинусное:
+ * кол-во совместных лайков / sqrt(лайки первого * лайки второго). Обратный индекс фильм - пользователи
+ * позволяет при удалении фильма обходить только строки, в которых он есть.
+ */
+@Service
+public class SimilarFilmsService {
+    private final LikeStorage likeStorage;
+    private final FilmService filmService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, LongHashSet> usersFilms = new HashMap<>();
+    private final Map<Long, LongHashSet> filmsUsers = new HashMap<>();
+    private final Map<Long, Map<Long, Integer>> coLikes = new HashMap<>();
+    private final Map<Long, Integer> likesCounts = new HashMap<>();
+
+    @Autowired
+    SimilarFilmsService(LikeStorage databaseFilmStorage, FilmService filmService) {
+        this.likeStorage = databaseFilmStorage;
+        this.filmService = filmService;
+    }
+
+    @PostConstruct
+    void load() {
+        lock.writeLock().lock();
+        try {
+            likeStorage.getUsersLikesMap().forEach((userId, films) -> films.forEach(filmId -> addLike(userId, filmId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает фильмы, наиболее похожие на данный по совместным лайкам.
+     *
+     * @param id    уникальный идентификатор фильма
+     * @param count максимальное кол-во фильмов
+     * @return похожие фильмы по убыванию сходства
+     * @throws NoSuchElementException - если фильма не существует.
+     */
+    public List<Film> getSimilarFilms(final Long id, final Integer count) {
+        filmService.getFilm(id);
+        return filmService.getFilms(getSimilarFilmsIds(id, count));
+    }
+
+    /**
+     * Возвращает идентификаторы фильмов, наиболее похожих на данный по совместным лайкам.
+     *
+     * @param id    уникальный идентификатор фильма
+     * @param count максимальное кол-во фильмов
+     * @return идентификаторы похожих фильмов по убыванию сходства, при равенстве - по возрастанию id
+     */
+    public List<Long> getSimilarFilmsIds(final Long id, final Integer count) {
+        lock.readLock().lock();
+        try {
+            final Map<Long, Integer> filmCoLikes = coLikes.getOrDefault(id, Map.of());
+            final int filmLikes = likesCounts.getOrDefault(id, 0);
+            final Map<Long, Double> similarities = new HashMap<>();
+            filmCoLikes.forEach((otherId, common) ->
+                    similarities.put(otherId, common / Math.sqrt((double) filmLikes * likesCounts.get(otherId))));
+
+            return similarities.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(count)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addLike(event.getUserId(), event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeRemoved(FilmLikeRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeLike(event.getUserId(), event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            final long filmId = event.getFilmId();
+            final LongHashSet whoLikes = filmsUsers.remove(filmId);
+            if (whoLikes == null) return;
+            whoLikes.forEach(userId -> {
+                final LongHashSet films = usersFilms.get(userId);
+                films.remove(filmId);
+                if (films.isEmpty()) usersFilms.remove(userId);
+            });
+            likesCounts.remove(filmId);
+
+            // матрица симметрична: строка фильма перечисляет все строки, где он встречается
+            final Map<Long, Integer> filmCoLikes = coLikes.remove(filmId);
+            if (filmCoLikes == null) return;
+            filmCoLikes.keySet().forEach(otherId -> coLikes.computeIfPresent(otherId, (k, counts) -> {
+                counts.remove(filmId);
+                return counts.isEmpty() ? null : counts;
+            }));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleUserRemoved(UserRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            final LongHashSet films = usersFilms.get(event.getUserId());
+            if (films == null) return;
+            for (long filmId : films.toSortedArray()) {
+                removeLike(event.getUserId(), filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLike(long userId, long filmId) {
+        final LongHashSet films = usersFilms.computeIfAbsent(userId, k -> new LongHashSet());
+        if (!films.add(filmId)) return;
+        filmsUsers.computeIfAbsent(filmId, k -> new LongHashSet()).add(userId);
+
+        likesCounts.merge(filmId, 1, Integer::sum);
+        films.forEach(otherId -> {
+            if (otherId == filmId) return;
+            coLikes.computeIfAbsent(filmId, k -> new HashMap<>()).merge(otherId, 1, Integer::sum);
+            coLikes.computeIfAbsent(otherId, k -> new HashMap<>()).merge(filmId, 1, Integer::sum);
+        });
+    }
+
+    private void removeLike(long userId, long filmId) {
+        final LongHashSet films = usersFilms.get(userId);
+        if (films == null || !films.remove(filmId)) return;
+        if (films.isEmpty()) usersFilms.remove(userId);
+        final LongHashSet users = filmsUsers.get(filmId);
+        users.remove(userId);
+        if (users.isEmpty()) filmsUsers.remove(filmId);
+
+        likesCounts.computeIfPresent(filmId, (k, v) -> v > 1 ? v - 1 : null);
+        films.forEach(otherId -> {
+            decrementCoLikes(filmId, otherId);
+            decrementCoLikes(otherId, filmId);
+        });
+    }
+
+    private void decrementCoLikes(long filmId, long otherId) {
+        coLikes.computeIfPresent(filmId, (k, counts) -> {
+            counts.computeIfPresent(otherId, (x, v) -> v > 1 ? v - 1 : null);
+            return counts.isEmpty() ? null : counts;
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmAddedEvent;
+import ru.yandex.practicum.filmorate.events.FilmRemovedEvent;
+import ru.yandex.practicum.filmorate.events.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.events.FilmsAddedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.TrigramIndex;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Класс-сервис поиска фильмов по названию через индекс триграмм в памяти. Индекс строится из базы при старте
+ * и обновляется на добавление, обновление и удаление фильма. Найденные фильмы ранжируются по кол-ву лайков
+ * из рейтинга популярности, как и поиск в базе. Нечёткий поиск (с опечатками) ранжирует сначала по сходству.
+ */
+@Slf4j
+@Service
+public class TitleSearchService {
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final double fuzzyThreshold;
+    private final int fuzzyMaxResults;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TrigramIndex index = new TrigramIndex();
+
+    @Autowired
+    TitleSearchService(@Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                       PopularityLeaderboard popularityLeaderboard,
+                       MeterRegistry meterRegistry,
+                       @Value("${films.search.fuzzy.threshold:0.4}") double fuzzyThreshold,
+                       @Value("${films.search.fuzzy.max-results:20}") int fuzzyMaxResults) {
+        this.filmStorage = filmStorage;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.fuzzyThreshold = fuzzyThreshold;
+        this.fuzzyMaxResults = fuzzyMaxResults;
+
+        Gauge.builder("films.search.index.size", this, TitleSearchService::getSize).register(meterRegistry);
+        Gauge.builder("films.search.index.memory", this, TitleSearchService::getMemoryBytes)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        final TrigramIndex loaded = new TrigramIndex();
+        filmStorage.getAll().forEach(film -> loaded.add(film.getId(), film.getName()));
+
+        lock.writeLock().lock();
+        try {
+            index = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("TITLE INDEX BUILT: {} FILMS, ~{} KB", loaded.size(), loaded.estimateMemoryBytes() / 1024);
+    }
+
+    /**
+     * Ищет фильмы, название которых содержит подстроку без учёта регистра.
+     *
+     * @param substring подстрока
+     * @return идентификаторы фильмов по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     */
+    public List<Long> search(String substring) {
+        final long[] ids;
+        lock.readLock().lock();
+        try {
+            ids = index.search(substring).toSortedArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final long[] likes = popularityLeaderboard.getLikes(ids);
+        final List<Integer> order = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            order.add(i);
+        }
+        // ids отсортированы по возрастанию, устойчивая сортировка сохраняет этот порядок при равных лайках
+        order.sort(Comparator.comparingLong((Integer i) -> likes[i]).reversed());
+
+        final List<Long> result = new ArrayList<>(ids.length);
+        order.forEach(i -> result.add(ids[i]));
+        return result;
+    }
+
+    /**
+     * Ищет фильмы с названием, похожим на запрос с опечатками.
+     *
+     * @param query запрос
+     * @return идентификаторы фильмов по убыванию сходства, затем по убыванию кол-ва лайков и возрастанию id
+     */
+    public List<Long> fuzzySearch(String query) {
+        final List<TrigramIndex.Match> matches;
+        lock.readLock().lock();
+        try {
+            matches = index.fuzzySearch(query, fuzzyThreshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final long[] ids = matches.stream().mapToLong(TrigramIndex.Match::getId).toArray();
+        final long[] likes = popularityLeaderboard.getLikes(ids);
+        final Map<Long, Long> likesByFilm = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            likesByFilm.put(ids[i], likes[i]);
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(TrigramIndex.Match::getScore).reversed()
+                        .thenComparing(match -> likesByFilm.get(match.getId()), Comparator.reverseOrder())
+                        .thenComparingLong(TrigramIndex.Match::getId))
+                .limit(fuzzyMaxResults)
+                .map(TrigramIndex.Match::getId)
+                .collect(Collectors.toList());
+    }
+
+    @EventListener
+    public void handleFilmAdded(FilmAddedEvent event) {
+        addFilm(event.getFilm());
+    }
+
+    @EventListener
+    public void handleFilmsAdded(FilmsAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getFilms().forEach(film -> index.add(film.getId(), film.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmUpdated(FilmUpdatedEvent event) {
+        addFilm(event.getFilm());
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.remove(event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            index.add(film.getId(), film.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int getSize() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return index.estimateMemoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
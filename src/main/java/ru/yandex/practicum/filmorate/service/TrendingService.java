@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.events.FilmLikeRemovedEvent;
+import ru.yandex.practicum.filmorate.events.FilmRemovedEvent;
+import ru.yandex.practicum.filmorate.events.UserRemovedEvent;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.EventOperations;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EventsStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.TrendingCounters;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Класс-сервис трендов: фильмы с наибольшим кол-вом недавних лайков с затуханием по времени. Счётчики
+ * в памяти ({@link TrendingCounters}) заполняются при старте событиями лайков из таблицы events за максимальное
+ * окно и обновляются на добавление и удаление лайков, удаление фильма и пользователя. Запрос тренда обходит
+ * только фильмы с лайками за максимальное окно и отбирает лучшие через ограниченную кучу.
+ */
+@Slf4j
+@Service
+public class TrendingService {
+    private final EventsStorage eventsStorage;
+    private final FilmStorage filmStorage;
+    private final Duration maxWindow;
+    private final Duration bucket;
+    private final Duration halfLife;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TrendingCounters counters;
+
+    @Autowired
+    TrendingService(EventsStorage eventsStorage,
+                    @Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                    MeterRegistry meterRegistry,
+                    @Value("${films.trending.max-window:7d}") String maxWindow,
+                    @Value("${films.trending.bucket:1h}") String bucket,
+                    @Value("${films.trending.half-life:12h}") String halfLife) {
+        this.eventsStorage = eventsStorage;
+        this.filmStorage = filmStorage;
+        this.maxWindow = DurationStyle.detectAndParse(maxWindow);
+        this.bucket = DurationStyle.detectAndParse(bucket);
+        this.halfLife = DurationStyle.detectAndParse(halfLife);
+        this.counters = newCounters();
+
+        Gauge.builder("films.trending.size", this, TrendingService::getSize).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        final TrendingCounters loaded = newCounters();
+        final long now = System.currentTimeMillis();
+        eventsStorage.forEachLikeEvent(now - maxWindow.toMillis(), event -> {
+            if (EventOperations.ADD.toString().equals(event.getOperation())) {
+                loaded.add(event.getEntityId(), event.getUserId(), event.getTimestamp());
+            } else {
+                loaded.remove(event.getEntityId(), event.getUserId(), event.getTimestamp());
+            }
+        });
+        // события лайков удалённых фильмов остаются в истории, а сами лайки удалены каскадно
+        final Set<Long> existing = filmStorage.getAll(loaded.getFilmIds()).stream()
+                .map(Film::getId).collect(Collectors.toCollection(HashSet::new));
+        loaded.getFilmIds().stream().filter(id -> !existing.contains(id)).forEach(loaded::removeFilm);
+
+        lock.writeLock().lock();
+        try {
+            counters = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("TRENDING COUNTERS LOADED: {} FILMS", loaded.size());
+    }
+
+    /**
+     * Возвращает фильмы с наибольшим кол-вом лайков за окно с затуханием.
+     *
+     * @param window окно, например 24h, не больше максимального окна
+     * @param count  максимальное кол-во фильмов
+     * @return идентификаторы фильмов по убыванию веса, при равенстве - по возрастанию id
+     * @throws ValidationException - если окно задано неверно.
+     */
+    public List<Long> getTrending(final String window, final int count) {
+        final Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("invalid window: " + window);
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxWindow) > 0) {
+            throw new ValidationException("window must be positive and not longer than " + maxWindow);
+        }
+
+        lock.readLock().lock();
+        try {
+            return counters.top(count, duration.toMillis(), System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+        lock.writeLock().lock();
+        try {
+            counters.add(event.getFilmId(), event.getUserId(), event.getLikeTimestamp());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmLikeRemoved(FilmLikeRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            counters.remove(event.getFilmId(), event.getUserId(), event.getLikeTimestamp());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleFilmRemoved(FilmRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            counters.removeFilm(event.getFilmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void handleUserRemoved(UserRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            counters.removeUser(event.getUserId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TrendingCounters newCounters() {
+        final int bucketsCount = (int) ((maxWindow.toMillis() + bucket.toMillis() - 1) / bucket.toMillis());
+        return new TrendingCounters(bucket.toMillis(), bucketsCount, halfLife.toMillis());
+    }
+
+    private int getSize() {
+        lock.readLock().lock();
+        try {
+            return counters.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.UserRemovedEvent;
 import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -22,10 +28,18 @@ public class UserService {
 
     private final FriendshipStorage friendshipStorage;
 
+    private final LikeStorage likeStorage;
+
+    private final ApplicationEventPublisher publisher;
+
     @Autowired
-    public UserService(UserStorage databaseUserStorage, FriendshipStorage databaseFriendshipStorage) {
+    public UserService(UserStorage databaseUserStorage, FriendshipStorage databaseFriendshipStorage,
+                       @Qualifier("databaseFilmStorage") LikeStorage likeStorage,
+                       ApplicationEventPublisher publisher) {
         this.userStorage = databaseUserStorage;
         this.friendshipStorage = databaseFriendshipStorage;
+        this.likeStorage = likeStorage;
+        this.publisher = publisher;
     }
 
     /**
@@ -37,6 +51,26 @@ public class UserService {
         return userStorage.getAll();
     }
 
+    /**
+     * Получает страницу пользователей по возрастанию идентификатора.
+     *
+     * @param after идентификатор последнего пользователя предыдущей страницы или null для первой страницы
+     * @param limit максимальное кол-во пользователей
+     * @return пользователи с идентификатором больше after
+     */
+    public List<User> getUsersPage(final Long after, final int limit) {
+        return userStorage.getPage(after, limit);
+    }
+
+    /**
+     * Передаёт всех пользователей по возрастанию идентификатора по одному.
+     *
+     * @param action обработчик пользователя
+     */
+    public void forEachUser(final Consumer<User> action) {
+        userStorage.forEach(action);
+    }
+
     /**
      * Получает пользователя по идентификатору.
      *
@@ -78,7 +112,10 @@ public class UserService {
      * @throws NoSuchElementException - если пользователя не существует.
      */
     public void removeUser(final Long id) {
-        userStorage.remove(getUser(id));
+        final User user = getUser(id);
+        final Set<Long> likedFilmsIds = likeStorage.getUsersLikesMap(List.of(id)).getOrDefault(id, Set.of());
+        userStorage.remove(user);
+        publisher.publishEvent(new UserRemovedEvent(this, id, likedFilmsIds));
     }
 
     /**
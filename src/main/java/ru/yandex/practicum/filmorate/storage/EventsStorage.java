@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.EventOperations;
 import ru.yandex.practicum.filmorate.model.EventType;
 
 import java.util.Collection;
+import java.util.function.Consumer;
 
 public interface EventsStorage {
     /**
@@ -15,6 +16,14 @@ public interface EventsStorage {
      */
     Collection<Event> getEvents(Long id);
 
+    /**
+     * Передаёт события лайков не старше заданного времени по возрастанию времени по одному.
+     *
+     * @param since  время в миллисекундах, с которого нужны события
+     * @param action обработчик события
+     */
+    void forEachLikeEvent(long since, Consumer<Event> action);
+
     /**
      * Сохраняет событие в таблицу events.
      *
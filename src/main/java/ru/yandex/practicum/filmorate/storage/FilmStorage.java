@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс для хранилища фильмов.
@@ -23,6 +25,31 @@ public interface FilmStorage {
      */
     Film get(Long id);
 
+    /**
+     * Получает фильмы по списку идентификаторов за постоянное кол-во запросов.
+     *
+     * @param ids уникальные идентификаторы фильмов
+     * @return фильмы в порядке переданных идентификаторов, несуществующие пропускаются
+     */
+    List<Film> getAll(Collection<Long> ids);
+
+    /**
+     * Получает страницу фильмов по возрастанию идентификатора: следующая страница запрашивается
+     * с идентификатором последнего фильма предыдущей.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во фильмов
+     * @return фильмы с идентификатором больше after по возрастанию идентификатора
+     */
+    List<Film> getPage(Long after, int limit);
+
+    /**
+     * Передаёт все фильмы по возрастанию идентификатора по одному, не собирая их в памяти.
+     *
+     * @param action обработчик фильма
+     */
+    void forEach(Consumer<Film> action);
+
     /**
      * Добавляет фильм в хранилище.
      *
@@ -30,6 +57,13 @@ public interface FilmStorage {
      */
     void add(Film film);
 
+    /**
+     * Добавляет фильмы в хранилище одной операцией: либо добавляются все, либо ни одного.
+     *
+     * @param films фильмы
+     */
+    void addAll(Collection<Film> films);
+
     /**
      * Обновляет фильм в хранилище.
      *
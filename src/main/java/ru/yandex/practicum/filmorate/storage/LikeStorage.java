@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -21,11 +24,20 @@ public interface LikeStorage {
     Collection<Film> getPopularFilms(Integer limit);
 
     /**
-     * Возвращает фильмы, которые лайкнул пользователь.
+     * Возвращает фильмы, которые лайкнули оба пользователя.
      *
-     * @param id id пользователя
+     * @param userId   id первого пользователя
+     * @param friendId id второго пользователя
+     * @return фильмы по убыванию кол-ва лайков, при равенстве - по возрастанию id
      */
-    Collection<Film> getPopularFilmByUserId(Long id);
+    List<Film> getCommonFilms(Long userId, Long friendId);
+
+    /**
+     * Возвращает кол-во лайков каждого фильма.
+     *
+     * @return кол-во лайков с ключом по фильму
+     */
+    Map<Long, Long> getLikesCounts();
 
     /**
      * Возвращает лайки всех пользователей сгруппированные по идентификатору пользователя.
@@ -35,16 +47,59 @@ public interface LikeStorage {
     Map<Long, Set<Long>> getUsersLikesMap();
 
     /**
-     * Добавляет лайк в хранилище.
+     * Возвращает лайки указанных пользователей сгруппированные по идентификатору пользователя.
+     *
+     * @param usersIds идентификаторы пользователей
+     * @return таблица лайков только для переданных пользователей
+     */
+    Map<Long, Set<Long>> getUsersLikesMap(Collection<Long> usersIds);
+
+    /**
+     * Возвращает пользователей, которые лайкнули хотя бы один из указанных фильмов.
+     *
+     * @param filmsIds идентификаторы фильмов
+     * @return множество идентификаторов пользователей
+     */
+    Set<Long> getUsersIdsByFilmsIds(Collection<Long> filmsIds);
+
+    /**
+     * Возвращает все лайки в виде компактной матрицы пользователь x фильм. Её столбцы фильм -> пользователи
+     * служат инвертированным индексом для поиска кандидатов в похожие пользователи,
+     * см. {@link LikeMatrix#getCoLikers(int)}.
+     *
+     * @return матрица лайков
+     */
+    LikeMatrix getLikeMatrix();
+
+    /**
+     * Добавляет лайк в хранилище. Повторный лайк ничего не меняет.
      *
      * @param like лайк
+     * @return true если лайка ещё не было
      */
-    void save(Like like);
+    boolean save(Like like);
 
     /**
-     * Удаляет лайк из хранилища.
+     * Удаляет лайк из хранилища. Удаление несуществующего лайка ничего не меняет.
      *
      * @param like лайк
+     * @return true если лайк был
+     */
+    boolean delete(Like like);
+
+    /**
+     * Применяет добавления и удаления лайков в порядке следования одной транзакцией. Повторный лайк
+     * и удаление несуществующего лайка ничего не меняют.
+     *
+     * @param operations операции с лайками
+     * @return для каждой операции - изменила ли она лайки
+     */
+    boolean[] applyAll(List<LikeOperation> operations);
+
+    /**
+     * Пересчитывает счётчики лайков фильмов там, где они разошлись с самими лайками.
+     *
+     * @return кол-во исправленных фильмов
      */
-    void delete(Like like);
+    int recountLikes();
 }
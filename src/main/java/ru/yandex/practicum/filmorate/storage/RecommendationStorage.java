@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Recommendation;
 
+import java.util.Collection;
+
 /**
  * Интерфейс для хранилища рекомендаций.
  */
@@ -20,4 +22,12 @@ public interface RecommendationStorage {
      * @param recommendation рекомендация
      */
     void save(Recommendation recommendation);
+
+    /**
+     * Сохраняет рекомендации нескольких пользователей одной транзакцией. Записывает только разницу
+     * с уже сохранёнными рекомендациями.
+     *
+     * @param recommendations рекомендации
+     */
+    void saveAll(Collection<Recommendation> recommendations);
 }
@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс для хранилища пользователей.
@@ -23,6 +25,23 @@ public interface UserStorage {
      */
     User get(Long id);
 
+    /**
+     * Получает страницу пользователей по возрастанию идентификатора: следующая страница запрашивается
+     * с идентификатором последнего пользователя предыдущей.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во пользователей
+     * @return пользователи с идентификатором больше after по возрастанию идентификатора
+     */
+    List<User> getPage(Long after, int limit);
+
+    /**
+     * Передаёт всех пользователей по возрастанию идентификатора по одному, не собирая их в памяти.
+     *
+     * @param action обработчик пользователя
+     */
+    void forEach(Consumer<User> action);
+
     /**
      * Добавляет пользователя в хранилище.
      *
@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Кэширующее хранилище фильмов поверх хранилища в базе данных. Держит ограниченный по размеру LRU-кэш
+ * агрегатов фильма (фильм + mpa + жанры): фильм попадает в кэш только при чтении по идентификатору и удаляется
+ * из него при добавлении, обновлении и удалении. Film неизменяем, поэтому экземпляры отдаются без копирования.
+ * Выборки (все фильмы, поиск) идут мимо кэша. Отключается свойством films.cache.enabled.
+ */
+@Component
+public class CachedFilmStorage implements FilmStorage {
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int maxSize;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    // кэш в порядке доступа, защищён this
+    private final LinkedHashMap<Long, Film> films;
+    // номер поколения кэша, растёт при каждой инвалидации; прочитанный из базы фильм кладётся в кэш,
+    // только если за время чтения не было записей, иначе в кэш могла бы попасть устаревшая версия
+    private long generation;
+
+    @Autowired
+    CachedFilmStorage(@Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                      MeterRegistry meterRegistry,
+                      @Value("${films.cache.enabled:true}") boolean enabled,
+                      @Value("${films.cache.max-size:10000}") int maxSize) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Film> eldest) {
+                if (size() <= CachedFilmStorage.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+
+        this.hits = Counter.builder("cache.gets").tag("cache", "films").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", "films").tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", "films").register(meterRegistry);
+        Gauge.builder("cache.size", this, CachedFilmStorage::size).tag("cache", "films").register(meterRegistry);
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    /**
+     * Получает фильм по идентификатору из кэша, при промахе - из базы с сохранением в кэш.
+     *
+     * @param id уникальный идентификатор фильма
+     * @return фильм или null если фильма нет
+     */
+    @Override
+    public Film get(Long id) {
+        if (!enabled) return filmStorage.get(id);
+
+        final long readGeneration;
+        synchronized (this) {
+            final Film film = films.get(id);
+            if (film != null) {
+                hits.increment();
+                return film;
+            }
+            readGeneration = generation;
+        }
+
+        misses.increment();
+        final Film film = filmStorage.get(id);
+        if (film != null) putIfFresh(List.of(film), readGeneration);
+        return film;
+    }
+
+    /**
+     * Получает фильмы по списку идентификаторов: найденные в кэше берутся из него, остальные - одним
+     * обращением к базе.
+     *
+     * @param ids уникальные идентификаторы фильмов
+     * @return фильмы в порядке переданных идентификаторов, несуществующие пропускаются
+     */
+    @Override
+    public List<Film> getAll(Collection<Long> ids) {
+        if (!enabled) return filmStorage.getAll(ids);
+
+        final Map<Long, Film> found = new HashMap<>();
+        final List<Long> missed = new ArrayList<>();
+        final long readGeneration;
+        synchronized (this) {
+            for (Long id : ids) {
+                final Film film = films.get(id);
+                if (film != null) {
+                    found.put(id, film);
+                } else {
+                    missed.add(id);
+                }
+            }
+            readGeneration = generation;
+        }
+
+        hits.increment(found.size());
+        misses.increment(missed.size());
+        if (!missed.isEmpty()) {
+            final List<Film> loaded = filmStorage.getAll(missed);
+            loaded.forEach(film -> found.put(film.getId(), film));
+            putIfFresh(loaded, readGeneration);
+        }
+
+        return ids.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getPage(Long after, int limit) {
+        return filmStorage.getPage(after, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<Film> action) {
+        filmStorage.forEach(action);
+    }
+
+    @Override
+    public void add(Film film) {
+        filmStorage.add(film);
+        invalidate(film.getId());
+    }
+
+    @Override
+    public void addAll(Collection<Film> films) {
+        filmStorage.addAll(films);
+        films.forEach(film -> invalidate(film.getId()));
+    }
+
+    @Override
+    public void update(Film film) {
+        filmStorage.update(film);
+        invalidate(film.getId());
+    }
+
+    @Override
+    public void remove(Film film) {
+        filmStorage.remove(film);
+        invalidate(film.getId());
+    }
+
+    @Override
+    public Collection<Film> searchFilmByTitle(String str) {
+        return filmStorage.searchFilmByTitle(str);
+    }
+
+    @Override
+    public Collection<Film> searchFilmByGenreAndYear(Integer limit, Integer genreId, Integer year) {
+        return filmStorage.searchFilmByGenreAndYear(limit, genreId, year);
+    }
+
+    private synchronized void putIfFresh(List<Film> loaded, long readGeneration) {
+        if (generation != readGeneration) return;
+        loaded.forEach(film -> films.put(film.getId(), film));
+    }
+
+    private synchronized void invalidate(Long id) {
+        generation++;
+        films.remove(id);
+    }
+
+    private synchronized int size() {
+        return films.size();
+    }
+}
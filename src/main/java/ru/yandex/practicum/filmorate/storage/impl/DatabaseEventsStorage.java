@@ -2,20 +2,25 @@ package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.EventsStorage;
 
+import java.sql.PreparedStatement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 @RequiredArgsConstructor
 public class DatabaseEventsStorage implements EventsStorage {
+    private static final int FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     /**
@@ -48,6 +53,47 @@ public class DatabaseEventsStorage implements EventsStorage {
         return list;
     }
 
+    /**
+     * Передаёт события лайков не старше заданного времени по возрастанию времени, читая результат
+     * порциями, а не целиком.
+     *
+     * @param since  время в миллисекундах, с которого нужны события
+     * @param action обработчик события
+     */
+    @Override
+    public void forEachLikeEvent(long since, Consumer<Event> action) {
+        final String sql = "SELECT event_id, user_id, event_type, event_operation, time_stamp, entity_id " +
+                "FROM events WHERE event_type = ? AND time_stamp >= ? ORDER BY time_stamp, event_id";
+        jdbcTemplate.query(connection -> {
+            final PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, EventType.LIKE.toString());
+            statement.setLong(2, since);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(Event.builder()
+                .eventId(rs.getLong("event_id"))
+                .userId(rs.getLong("user_id"))
+                .eventType(rs.getString("event_type"))
+                .operation(rs.getString("event_operation"))
+                .timestamp(rs.getLong("time_stamp"))
+                .entityId(rs.getLong("entity_id")).build()));
+    }
+
+    /**
+     * Сохраняет события лайков в таблицу events одним пакетом с временем принятия операций.
+     *
+     * @param operations применённые операции с лайками
+     */
+    public void addLikes(List<LikeOperation> operations) {
+        if (operations.isEmpty()) return;
+
+        final List<Object[]> rows = new ArrayList<>(operations.size());
+        operations.forEach(x -> rows.add(new Object[]{x.getUserId(), EventType.LIKE.toString(),
+                x.getOperation().toString(), x.getTimestamp(), x.getFilmId()}));
+        jdbcTemplate.batchUpdate("INSERT INTO events (USER_ID, EVENT_TYPE, EVENT_OPERATION, TIME_STAMP, ENTITY_ID) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
     /**
      * Сохраняет событие в таблицу events.
      *
@@ -1,15 +1,24 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Реализация интерфейса хранилища фильмов с хранением в реляционной базе данных.
@@ -19,41 +28,88 @@ import java.util.*;
 @RequiredArgsConstructor
 public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final DatabaseEventsStorage databaseEventsStorage;
 
-    private static final String SQL_SEARCH_TITLE = "SELECT * FROM films AS f LEFT OUTER JOIN " +
-            "(SELECT film_id, COUNT (*) likes_count FROM likes GROUP BY film_id) " +
-            "AS l ON f.film_id = l.film_id " +
+    // Запросы ниже должны идти по индексам, это проверяет DatabaseFilmStorageTest через EXPLAIN.
+    // Год выпуска фильтруется диапазоном дат [1 января года; 1 января следующего), а не EXTRACT(YEAR),
+    // чтобы работал индекс по release_date; поиск по жанру начинается с индекса film_genres(genre_id).
+
+    private static final int FETCH_SIZE = 1000;
+
+    static final String SQL_GET_FILM = "SELECT * FROM films " +
+            "LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id " +
+            "WHERE film_id = ?";
+
+    static final String SQL_GET_FILMS_BY_IDS = "SELECT * FROM films " +
+            "LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id " +
+            "WHERE film_id IN (:ids)";
+
+    static final String SQL_GET_FILMS_PAGE = "SELECT * FROM films " +
+            "LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id " +
+            "WHERE film_id > ? " +
+            "ORDER BY film_id " +
+            "LIMIT ?";
+
+    // жанры приходят в тех же строках, строки одного фильма идут подряд
+    static final String SQL_GET_FILMS_WITH_GENRES = "SELECT f.*, mpa.title, fg.genre_id, g.title AS genre_title " +
+            "FROM films AS f " +
+            "LEFT JOIN mpa ON f.mpa_id = mpa.mpa_id " +
+            "LEFT JOIN film_genres AS fg ON fg.film_id = f.film_id " +
+            "LEFT JOIN genres AS g ON g.genre_id = fg.genre_id " +
+            "ORDER BY f.film_id";
+
+    static final String SQL_GET_FILMS_GENRES_BY_IDS = "SELECT * FROM film_genres " +
+            "INNER JOIN genres ON genres.genre_id = film_genres.genre_id " +
+            "WHERE film_id IN (:ids)";
+
+    static final String SQL_POPULAR = "SELECT * FROM films AS f " +
+            "LEFT JOIN mpa ON f.mpa_id = mpa.mpa_id " +
+            "ORDER BY f.likes_count DESC, f.film_id " +
+            "LIMIT ?";
+
+    static final String SQL_COMMON_FILMS = "SELECT f.*, mpa.title FROM likes AS l " +
+            "INNER JOIN likes AS fl ON fl.film_id = l.film_id AND fl.user_id = ? " +
+            "INNER JOIN films AS f ON f.film_id = l.film_id " +
+            "LEFT JOIN mpa ON f.mpa_id = mpa.mpa_id " +
+            "WHERE l.user_id = ? " +
+            "ORDER BY f.likes_count DESC, f.film_id";
+
+    static final String SQL_SEARCH_TITLE = "SELECT * FROM films AS f " +
             "LEFT OUTER JOIN mpa AS mpa ON f.mpa_id = mpa.mpa_id " +
-            "WHERE f.name ILIKE CONCAT('%', ?, '%')" +
-            "ORDER BY l.likes_count DESC;";
+            "WHERE f.name ILIKE CONCAT('%', ?, '%') " +
+            "ORDER BY f.likes_count DESC, f.film_id;";
 
-    private static final String SQL_SEARCH_GENRE_YEAR = "SELECT * FROM films AS f " +
-            "LEFT OUTER JOIN (SELECT film_id, COUNT (*) likes_count FROM likes GROUP BY film_id) " +
-            "AS l ON f.film_id = l.film_id " +
+    static final String SQL_SEARCH_GENRE_YEAR = "SELECT f.*, mpa.title FROM film_genres AS fg " +
+            "INNER JOIN films AS f ON f.film_id = fg.film_id " +
             "LEFT OUTER JOIN mpa AS mpa ON f.mpa_id = mpa.mpa_id " +
-            "LEFT OUTER JOIN film_genres AS fg ON f.film_id = fg.film_id " +
-            "WHERE fg.genre_id = ? AND EXTRACT (YEAR FROM f.release_date) = ? " +
-            "ORDER BY l.likes_count DESC " +
+            "WHERE fg.genre_id = ? AND f.release_date >= ? AND f.release_date < ? " +
+            "ORDER BY f.likes_count DESC, f.film_id " +
             "LIMIT ?;";
 
-    private static final String SQL_SEARCH_GENRE = "SELECT * FROM films AS f " +
-            "LEFT OUTER JOIN (SELECT film_id, COUNT (*) likes_count FROM likes GROUP BY film_id) " +
-            "AS l ON f.film_id = l.film_id " +
+    static final String SQL_SEARCH_GENRE = "SELECT f.*, mpa.title FROM film_genres AS fg " +
+            "INNER JOIN films AS f ON f.film_id = fg.film_id " +
             "LEFT OUTER JOIN mpa AS mpa ON f.mpa_id = mpa.mpa_id " +
-            "LEFT OUTER JOIN film_genres AS fg ON f.film_id = fg.film_id " +
             "WHERE fg.genre_id = ? " +
-            "ORDER BY l.likes_count DESC " +
+            "ORDER BY f.likes_count DESC, f.film_id " +
             "LIMIT ?;";
 
-    private static final String SQL_SEARCH_YEAR = "SELECT * FROM films AS f " +
-            "LEFT OUTER JOIN (SELECT film_id, COUNT (*) likes_count FROM likes GROUP BY film_id) " +
-            "AS l ON f.film_id = l.film_id " +
+    static final String SQL_SEARCH_YEAR = "SELECT * FROM films AS f " +
             "LEFT OUTER JOIN mpa AS mpa ON f.mpa_id = mpa.mpa_id " +
-            "WHERE EXTRACT (YEAR FROM f.release_date) = ? " +
-            "ORDER BY l.likes_count DESC " +
+            "WHERE f.release_date >= ? AND f.release_date < ? " +
+            "ORDER BY f.likes_count DESC, f.film_id " +
             "LIMIT ?;";
 
+    static final String SQL_LIKES_BY_USERS = "SELECT * FROM likes WHERE user_id IN (:ids)";
+
+    static final String SQL_USERS_BY_FILMS = "SELECT DISTINCT user_id FROM likes WHERE film_id IN (:ids)";
+
+    static final String SQL_INSERT_LIKE_IF_ABSENT = "INSERT INTO likes (user_id, film_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE user_id = ? AND film_id = ?)";
+
+    static final String SQL_INCREMENT_LIKES_COUNT =
+            "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+
     /**
      * Получает все фильмы из хранилища.
      *
@@ -64,10 +120,7 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
     public Collection<Film> getAll() {
         final Map<Long, Set<Genre>> filmsGenres = getAllFilmsGenres();
         final String sql = "SELECT * FROM films LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id";
-        return jdbcTemplate.query(sql, (rs, numRow) -> {
-            final Long filmId = rs.getLong("film_id");
-            return mapRowToFilm(rs, filmsGenres.get(filmId));
-        });
+        return withGenres(jdbcTemplate.query(sql, (rs, numRow) -> mapRowToFilm(rs)), filmsGenres);
     }
 
     /**
@@ -79,11 +132,60 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
      */
     @Override
     public Film get(Long id) {
-        final String sql = "SELECT * FROM films LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id WHERE film_id = ?";
-        List<Film> films = jdbcTemplate.query(sql, (rs, numRow) -> mapRowToFilm(rs, getFilmGenresById(id)), id);
+        List<Film> films = queryFilms(SQL_GET_FILM, id);
         return films.size() > 0 ? films.get(0) : null;
     }
 
+    /**
+     * Получает фильмы по списку идентификаторов: один запрос за фильмами и один за их жанрами.
+     *
+     * @param ids уникальные идентификаторы фильмов
+     * @return фильмы в порядке переданных идентификаторов, несуществующие пропускаются
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public List<Film> getAll(Collection<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        final Map<Long, Film> films = new HashMap<>();
+        withGenres(namedParameterJdbcTemplate.query(SQL_GET_FILMS_BY_IDS, Map.of("ids", ids), (rs, rowNum) -> mapRowToFilm(rs)))
+                .forEach(film -> films.put(film.getId(), film));
+
+        return ids.stream().map(films::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Получает страницу фильмов по возрастанию идентификатора поиском по первичному ключу,
+     * без пропуска предыдущих страниц, как при OFFSET.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во фильмов
+     * @return фильмы с идентификатором больше after по возрастанию идентификатора
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public List<Film> getPage(Long after, int limit) {
+        return queryFilms(SQL_GET_FILMS_PAGE, after != null ? after : Long.MIN_VALUE, limit);
+    }
+
+    /**
+     * Передаёт все фильмы по возрастанию идентификатора одним запросом, читая результат порциями
+     * по FETCH_SIZE строк. В памяти держится только текущий фильм.
+     *
+     * @param action обработчик фильма
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public void forEach(Consumer<Film> action) {
+        final FilmRowsHandler handler = new FilmRowsHandler(action);
+        jdbcTemplate.query(con -> {
+            final PreparedStatement statement = con.prepareStatement(SQL_GET_FILMS_WITH_GENRES);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, handler);
+        handler.finish();
+    }
+
     /**
      * Добавляет фильм в хранилище.
      *
@@ -91,6 +193,7 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
      * @throws SQLException если SQL-запрос выполнился с ошибкой
      */
     @Override
+    @Transactional
     public void add(Film film) {
         final String sql = "INSERT INTO films (film_id, name, description, release_date, duration, mpa_id)"
                 + " VALUES (?, ?, ?, ?, ?, ?)";
@@ -98,21 +201,43 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
         jdbcTemplate.update(sql, film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
                 film.getDuration(), film.getMpa().getId());
 
-        final Set<Genre> filmGenres = film.getGenres();
+        writeGenres(film.getId(), Set.of(), getGenresIds(film));
+    }
+
+    /**
+     * Добавляет фильмы в хранилище двумя пакетными запросами: фильмы и их жанры.
+     *
+     * @param films фильмы
+     */
+    @Override
+    @Transactional
+    public void addAll(Collection<Film> films) {
+        final String sql = "INSERT INTO films (film_id, name, description, release_date, duration, mpa_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?)";
+
+        final List<Object[]> filmsRows = new ArrayList<>(films.size());
+        final List<Object[]> genresRows = new ArrayList<>();
+        for (Film film : films) {
+            filmsRows.add(new Object[]{film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getMpa().getId()});
+            getGenresIds(film).forEach(x -> genresRows.add(new Object[]{film.getId(), x}));
+        }
 
-        if (filmGenres != null) {
-            final String genreSaveSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-            filmGenres.forEach(x -> jdbcTemplate.update(genreSaveSql, film.getId(), x.getId()));
+        jdbcTemplate.batchUpdate(sql, filmsRows);
+        if (!genresRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genresRows);
         }
     }
 
     /**
-     * Обновляет фильм в хранилище.
+     * Обновляет фильм в хранилище. Жанры не перезаписываются целиком: удаляются и добавляются
+     * только отличающиеся от сохранённых.
      *
      * @param film фильм
      * @throws SQLException если SQL-запрос выполнился с ошибкой
      */
     @Override
+    @Transactional
     public void update(Film film) {
         final String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?"
                 + " WHERE film_id = ?";
@@ -120,17 +245,30 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
         jdbcTemplate.update(sql, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
                 film.getMpa().getId(), film.getId());
 
-        final String deleteGenres = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(deleteGenres, film.getId());
+        final Set<Integer> stored = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Integer.class, film.getId()));
+        writeGenres(film.getId(), stored, getGenresIds(film));
+    }
 
-        final Set<Genre> filmGenres = film.getGenres();
+    private void writeGenres(Long filmId, Set<Integer> oldGenres, Set<Integer> newGenres) {
+        final List<Object[]> toDelete = new ArrayList<>();
+        final List<Object[]> toInsert = new ArrayList<>();
+        oldGenres.stream().filter(x -> !newGenres.contains(x)).forEach(x -> toDelete.add(new Object[]{filmId, x}));
+        newGenres.stream().filter(x -> !oldGenres.contains(x)).forEach(x -> toInsert.add(new Object[]{filmId, x}));
 
-        if (filmGenres != null) {
-            final String genreSaveSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-            filmGenres.forEach(x -> jdbcTemplate.update(genreSaveSql, film.getId(), x.getId()));
+        if (!toDelete.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", toDelete);
+        }
+        if (!toInsert.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", toInsert);
         }
     }
 
+    private static Set<Integer> getGenresIds(Film film) {
+        if (film.getGenres() == null) return Set.of();
+        return film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+    }
+
     /**
      * Удаляет фильм из хранилища.
      *
@@ -151,10 +289,7 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
     @Override
     public Collection<Film> searchFilmByTitle(String str) {
 
-        return jdbcTemplate.query(SQL_SEARCH_TITLE, (rs, rowNum) -> {
-            final Long filmId = rs.getLong("film_id");
-            return mapRowToFilm(rs, getFilmGenresById(filmId));
-        }, str);
+        return queryFilms(SQL_SEARCH_TITLE, str);
 
     }
 
@@ -168,22 +303,14 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
     @Override
     public Collection<Film> searchFilmByGenreAndYear(Integer limit, Integer genreId, Integer year) {
         if (year != null && genreId != null) {
-            return jdbcTemplate.query(SQL_SEARCH_GENRE_YEAR, (rs, rowNum) -> {
-                final Long filmId = rs.getLong("film_id");
-                return mapRowToFilm(rs, getFilmGenresById(filmId));
-            }, genreId, year, limit);
+            return queryFilms(SQL_SEARCH_GENRE_YEAR, genreId, LocalDate.of(year, 1, 1),
+                    LocalDate.of(year + 1, 1, 1), limit);
         }
         if (year == null && genreId != null) {
-            return jdbcTemplate.query(SQL_SEARCH_GENRE, (rs, rowNum) -> {
-                final Long filmId = rs.getLong("film_id");
-                return mapRowToFilm(rs, getFilmGenresById(filmId));
-            }, genreId, limit);
+            return queryFilms(SQL_SEARCH_GENRE, genreId, limit);
         }
         if (year != null) {
-            return jdbcTemplate.query(SQL_SEARCH_YEAR, (rs, rowNum) -> {
-                final Long filmId = rs.getLong("film_id");
-                return mapRowToFilm(rs, getFilmGenresById(filmId));
-            }, year, limit);
+            return queryFilms(SQL_SEARCH_YEAR, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1), limit);
         }
         throw new NoSuchElementException();
 
@@ -198,33 +325,38 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
      */
     @Override
     public Collection<Film> getPopularFilms(Integer limit) {
-        final String sql = "SELECT * FROM films f LEFT JOIN (SELECT film_id, COUNT(*) likes_count FROM likes"
-                + " GROUP BY film_id) l ON f.film_id = l.film_id LEFT JOIN mpa ON f.mpa_id = mpa.mpa_id"
-                + " ORDER BY l.likes_count DESC LIMIT ?";
-
-        final Map<Long, Set<Genre>> filmsGenres = getAllFilmsGenres();
+        return queryFilms(SQL_POPULAR, limit);
+    }
 
-        return jdbcTemplate.query(sql, (rs, numRow) -> {
-            final Long filmId = rs.getLong("film_id");
-            return mapRowToFilm(rs, filmsGenres.get(filmId));
-        }, limit);
+    /**
+     * Возвращает фильмы, которые лайкнули оба пользователя: лайки первого соединяются с лайками второго
+     * по первичному ключу likes, так что читаются только лайки первого пользователя.
+     *
+     * @param userId   id первого пользователя
+     * @param friendId id второго пользователя
+     * @return фильмы по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public List<Film> getCommonFilms(Long userId, Long friendId) {
+        return queryFilms(SQL_COMMON_FILMS, friendId, userId);
     }
 
+    /**
+     * Возвращает кол-во лайков каждого фильма из материализованного счётчика.
+     *
+     * @return кол-во лайков с ключом по фильму
+     */
     @Override
-    public Collection<Film> getPopularFilmByUserId(Long id) {
-        final String sql = "SELECT * FROM films " +
-                "LEFT JOIN mpa ON films.mpa_id = mpa.mpa_id " +
-                "LEFT JOIN (SELECT film_id, user_id, COUNT(*) likes_count FROM likes GROUP BY user_id, film_id)" +
-                " l ON films.film_id = l.film_id " +
-                "WHERE l.user_id = ? " +
-                "ORDER BY l.likes_count DESC;";
+    public Map<Long, Long> getLikesCounts() {
+        final String sql = "SELECT film_id, likes_count FROM films";
 
-        final Map<Long, Set<Genre>> filmsGenres = getAllFilmsGenres();
+        final Map<Long, Long> likesCounts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likesCounts.put(rs.getLong("film_id"), rs.getLong("likes_count"));
+        });
 
-        return jdbcTemplate.query(sql, (rs, numRow) -> {
-            final Long filmId = rs.getLong("film_id");
-            return mapRowToFilm(rs, filmsGenres.get(filmId));
-        }, id);
+        return likesCounts;
     }
 
     /**
@@ -237,43 +369,165 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
         final String sql = "SELECT * FROM likes";
 
         final Map<Long, Set<Long>> usersLikes = new HashMap<>();
+        jdbcTemplate.query(sql, usersLikesCollector(usersLikes));
 
-        jdbcTemplate.query(sql, (rs) -> {
-            final Long userId = rs.getLong("user_id");
-            final Long filmId = rs.getLong("film_id");
-            usersLikes.merge(userId, new HashSet<>(Set.of(filmId)), (oldVal, newVal) -> {
-                oldVal.add(filmId);
-                return oldVal;
-            });
-        });
+        return usersLikes;
+    }
+
+    /**
+     * Возвращает лайки указанных пользователей сгруппированные по идентификатору пользователя.
+     *
+     * @param usersIds идентификаторы пользователей
+     * @return таблица лайков только для переданных пользователей
+     */
+    @Override
+    public Map<Long, Set<Long>> getUsersLikesMap(Collection<Long> usersIds) {
+        final Map<Long, Set<Long>> usersLikes = new HashMap<>();
+        if (usersIds.isEmpty()) return usersLikes;
+
+        namedParameterJdbcTemplate.query(SQL_LIKES_BY_USERS, Map.of("ids", usersIds), usersLikesCollector(usersLikes));
 
         return usersLikes;
     }
 
     /**
-     * Добавляет лайк в хранилище.
+     * Возвращает пользователей, которые лайкнули хотя бы один из указанных фильмов.
+     *
+     * @param filmsIds идентификаторы фильмов
+     * @return множество идентификаторов пользователей
+     */
+    @Override
+    public Set<Long> getUsersIdsByFilmsIds(Collection<Long> filmsIds) {
+        if (filmsIds.isEmpty()) return new HashSet<>();
+
+        return new HashSet<>(namedParameterJdbcTemplate.query(SQL_USERS_BY_FILMS, Map.of("ids", filmsIds),
+                (rs, rowNum) -> rs.getLong("user_id")));
+    }
+
+    /**
+     * Возвращает все лайки в виде компактной матрицы пользователь x фильм. Строки читаются потоком,
+     * промежуточные коллекции упакованных Long не создаются.
+     *
+     * @return матрица лайков
+     */
+    @Override
+    public LikeMatrix getLikeMatrix() {
+        final String sql = "SELECT user_id, film_id FROM likes";
+
+        final LikeMatrix.Builder builder = LikeMatrix.builder();
+        jdbcTemplate.query(sql, rs -> {
+            builder.add(rs.getLong("user_id"), rs.getLong("film_id"));
+        });
+
+        return builder.build();
+    }
+
+    /**
+     * Добавляет лайк в хранилище и увеличивает счётчик лайков фильма в той же транзакции. Повторный лайк
+     * не пишется, не меняет счётчик и не создаёт событие.
      *
      * @param like лайк
+     * @return true если лайка ещё не было
      * @throws SQLException если SQL-запрос выполнился с ошибкой
      */
     @Override
-    public void save(Like like) {
-        final String sql = "INSERT INTO likes (user_id, film_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, like.getUser().getId(), like.getFilm().getId());
+    @Transactional
+    public boolean save(Like like) {
+        final Long userId = like.getUser().getId();
+        final Long filmId = like.getFilm().getId();
+        try {
+            if (jdbcTemplate.update(SQL_INSERT_LIKE_IF_ABSENT, userId, filmId, userId, filmId) == 0) return false;
+        } catch (DuplicateKeyException e) {
+            // параллельный запрос успел вставить тот же лайк между проверкой и вставкой
+            return false;
+        }
+        jdbcTemplate.update(SQL_INCREMENT_LIKES_COUNT, 1, filmId);
         databaseEventsStorage.add(like, EventType.LIKE, EventOperations.ADD);
+        return true;
     }
 
     /**
-     * Удаляет лайк из хранилища.
+     * Удаляет лайк из хранилища и уменьшает счётчик лайков фильма в той же транзакции. Удаление
+     * несуществующего лайка не меняет счётчик и не создаёт событие.
      *
      * @param like лайк
+     * @return true если лайк был
      * @throws SQLException если SQL-запрос выполнился с ошибкой
      */
     @Override
-    public void delete(Like like) {
+    @Transactional
+    public boolean delete(Like like) {
         final String sql = "DELETE FROM likes WHERE user_id = ? AND film_id = ?";
-        jdbcTemplate.update(sql, like.getUser().getId(), like.getFilm().getId());
+        if (jdbcTemplate.update(sql, like.getUser().getId(), like.getFilm().getId()) == 0) return false;
+        jdbcTemplate.update(SQL_INCREMENT_LIKES_COUNT, -1, like.getFilm().getId());
         databaseEventsStorage.add(like, EventType.LIKE, EventOperations.REMOVE);
+        return true;
+    }
+
+    /**
+     * Применяет пачку операций с лайками одной транзакцией (group commit). Идущие подряд операции одного типа
+     * отправляются одним пакетом; счётчики лайков меняются одним UPDATE на фильм с суммарной разницей,
+     * в порядке id фильмов, а события пишутся одним пакетом - только для изменивших что-то операций.
+     *
+     * @param operations операции с лайками
+     * @return для каждой операции - изменила ли она лайки
+     */
+    @Override
+    @Transactional
+    public boolean[] applyAll(List<LikeOperation> operations) {
+        final boolean[] applied = new boolean[operations.size()];
+        for (int from = 0, to; from < operations.size(); from = to) {
+            final EventOperations operation = operations.get(from).getOperation();
+            to = from;
+            final List<Object[]> rows = new ArrayList<>();
+            for (; to < operations.size() && operations.get(to).getOperation() == operation; to++) {
+                final LikeOperation like = operations.get(to);
+                rows.add(operation == EventOperations.ADD
+                        ? new Object[]{like.getUserId(), like.getFilmId(), like.getUserId(), like.getFilmId()}
+                        : new Object[]{like.getUserId(), like.getFilmId()});
+            }
+
+            final int[] counts = operation == EventOperations.ADD
+                    ? jdbcTemplate.batchUpdate(SQL_INSERT_LIKE_IF_ABSENT, rows)
+                    : jdbcTemplate.batchUpdate("DELETE FROM likes WHERE user_id = ? AND film_id = ?", rows);
+            for (int i = 0; i < counts.length; i++) {
+                applied[from + i] = counts[i] > 0;
+            }
+        }
+
+        final Map<Long, Long> deltas = new TreeMap<>();
+        final List<LikeOperation> changes = new ArrayList<>();
+        for (int i = 0; i < applied.length; i++) {
+            if (!applied[i]) continue;
+            final LikeOperation like = operations.get(i);
+            deltas.merge(like.getFilmId(), like.getOperation() == EventOperations.ADD ? 1L : -1L, Long::sum);
+            changes.add(like);
+        }
+
+        final List<Object[]> increments = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) increments.add(new Object[]{delta, filmId});
+        });
+        if (!increments.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INCREMENT_LIKES_COUNT, increments);
+        }
+        databaseEventsStorage.addLikes(changes);
+        return applied;
+    }
+
+    /**
+     * Пересчитывает счётчики лайков по таблице лайков там, где они разошлись. Используется для первичного
+     * заполнения счётчиков и для периодической проверки согласованности.
+     *
+     * @return кол-во исправленных фильмов
+     */
+    @Override
+    @Transactional
+    public int recountLikes() {
+        final String sql = "UPDATE films f SET likes_count = "
+                + "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) "
+                + "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)";
+        return jdbcTemplate.update(sql);
     }
 
     /**
@@ -288,29 +542,96 @@ public class DatabaseFilmStorage implements FilmStorage, LikeStorage {
 
         jdbcTemplate.query(sql, rs -> {
             final Long filmId = rs.getLong("film_id");
-            filmsGenres.getOrDefault(filmId, new HashSet<>()).add(Genre.builder().id(rs.getInt("genre_id"))
+            filmsGenres.computeIfAbsent(filmId, k -> new HashSet<>()).add(Genre.builder().id(rs.getInt("genre_id"))
                     .title(rs.getString("title")).build());
         });
 
         return filmsGenres;
     }
 
-    private Set<Genre> getFilmGenresById(Long id) {
-        final String sql = "SELECT * FROM film_genres INNER JOIN genres ON genres.genre_id = film_genres.genre_id"
-                + " WHERE film_id = ?";
+    private RowCallbackHandler usersLikesCollector(Map<Long, Set<Long>> usersLikes) {
+        return rs -> {
+            final Long userId = rs.getLong("user_id");
+            final Long filmId = rs.getLong("film_id");
+            usersLikes.computeIfAbsent(userId, k -> new HashSet<>()).add(filmId);
+        };
+    }
+
+    /**
+     * Загрузчик агрегатов фильма: выполняет запрос фильмов (с join на mpa), затем одним запросом подгружает
+     * жанры всех найденных фильмов. Всего два запроса независимо от размера выборки, порядок строк сохраняется.
+     *
+     * @param sql  запрос фильмов
+     * @param args параметры запроса
+     * @return фильмы с жанрами
+     */
+    private List<Film> queryFilms(String sql, Object... args) {
+        final List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToFilm(rs), args);
+        return withGenres(films);
+    }
+
+    private List<Film> withGenres(List<Film> films) {
+        if (films.isEmpty()) return films;
+        return withGenres(films, getFilmsGenresByIds(films.stream().map(Film::getId).collect(Collectors.toSet())));
+    }
 
-        return new HashSet<>(jdbcTemplate.query(sql, (rs, getNum) -> Genre.builder().id(rs.getInt("genre_id"))
-                .title(rs.getString("title")).build(), id));
+    private List<Film> withGenres(List<Film> films, Map<Long, Set<Genre>> filmsGenres) {
+        return films.stream()
+                .map(film -> filmsGenres.containsKey(film.getId())
+                        ? film.toBuilder().genres(filmsGenres.get(film.getId())).build() : film)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Set<Genre>> getFilmsGenresByIds(Collection<Long> ids) {
+        final Map<Long, Set<Genre>> filmsGenres = new HashMap<>();
+        namedParameterJdbcTemplate.query(SQL_GET_FILMS_GENRES_BY_IDS, Map.of("ids", ids), rs -> {
+            filmsGenres.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(Genre.builder()
+                    .id(rs.getInt("genre_id")).title(rs.getString("title")).build());
+        });
+
+        return filmsGenres;
+    }
+
+    /**
+     * Собирает фильм из идущих подряд строк с его жанрами и передаёт его дальше, когда начинается следующий.
+     */
+    private class FilmRowsHandler implements RowCallbackHandler {
+        private final Consumer<Film> action;
+        private Film film;
+        private Set<Genre> genres;
+
+        FilmRowsHandler(Consumer<Film> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            final long filmId = rs.getLong("film_id");
+            if (film == null || film.getId() != filmId) {
+                finish();
+                film = mapRowToFilm(rs);
+                genres = new HashSet<>();
+            }
+            final int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                genres.add(Genre.builder().id(genreId).title(rs.getString("genre_title")).build());
+            }
+        }
+
+        void finish() {
+            if (film == null) return;
+            action.accept(genres.isEmpty() ? film : film.toBuilder().genres(genres).build());
+            film = null;
+        }
     }
 
-    private Film mapRowToFilm(ResultSet rs, Set<Genre> genres) throws SQLException {
+    private Film mapRowToFilm(ResultSet rs) throws SQLException {
         return Film.builder()
                 .id(rs.getLong("film_id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date").toLocalDate())
                 .duration(rs.getInt("duration"))
-                .genres(genres != null && genres.isEmpty() ? null : genres)
                 .mpa(MpaRating.builder().id(rs.getInt("mpa_id")).title(rs.getString("title")).build())
                 .build();
     }
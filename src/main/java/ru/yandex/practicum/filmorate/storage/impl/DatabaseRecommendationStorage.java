@@ -2,12 +2,13 @@ package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Recommendation;
 import ru.yandex.practicum.filmorate.storage.RecommendationStorage;
 
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
 
 /**
  * Реализация интерфейса хранилища рекомендаций с хранением в реляционной базе данных.
@@ -15,31 +16,96 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class DatabaseRecommendationStorage implements RecommendationStorage {
+    static final int CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     /**
      * Получает рекомендацию фильмов для пользователя.
      *
      * @param id - уникальный идентификатор пользователя
-     * @return объект рекомендация для пользователя
+     * @return объект рекомендация для пользователя, фильмы в порядке сохранения
      */
     @Override
     public Recommendation getRecommendationByUserId(Long id) {
-        String sql = "SELECT * FROM recommendations WHERE user_id = ?";
+        String sql = "SELECT film_id FROM recommendations WHERE user_id = ? ORDER BY rank";
         List<Long> filmIds = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("film_id"), id);
-        return Recommendation.builder().whomId(id).filmsIds(new HashSet<>(filmIds)).build();
+        return Recommendation.builder().whomId(id).filmsIds(new LinkedHashSet<>(filmIds)).build();
     }
 
     /**
      * Сохраняет рекомендацию в хранилище.
      *
-     * @param recommendation
+     * @param recommendation рекомендация
      */
     @Override
     public void save(Recommendation recommendation) {
-        final String deleteSql = "DELETE FROM recommendations WHERE user_id = ?";
-        jdbcTemplate.update(deleteSql, recommendation.getWhomId());
-        final String insertSql = "INSERT INTO recommendations (user_id, film_id) VALUES (?, ?)";
-        recommendation.getFilmsIds().forEach(x -> jdbcTemplate.update(insertSql, recommendation.getWhomId(), x));
+        saveAll(List.of(recommendation));
+    }
+
+    /**
+     * Сохраняет рекомендации нескольких пользователей одной транзакцией. Сохранённые рекомендации читаются
+     * пачками по {@value CHUNK_SIZE} пользователей, затем удаляются, вставляются и обновляются только
+     * изменившиеся строки пакетными запросами. Порядок фильмов в рекомендации сохраняется в столбец rank.
+     *
+     * @param recommendations рекомендации
+     */
+    @Override
+    @Transactional
+    public void saveAll(Collection<Recommendation> recommendations) {
+        final List<Recommendation> all = new ArrayList<>(recommendations);
+
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            final List<Recommendation> chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size()));
+            final Map<Long, Map<Long, Integer>> stored = getStoredRanks(chunk);
+
+            final List<Object[]> toDelete = new ArrayList<>();
+            final List<Object[]> toInsert = new ArrayList<>();
+            final List<Object[]> toUpdate = new ArrayList<>();
+            for (Recommendation recommendation : chunk) {
+                final Long userId = recommendation.getWhomId();
+                final Map<Long, Integer> oldRanks = stored.getOrDefault(userId, Map.of());
+                final Set<Long> newFilms = recommendation.getFilmsIds();
+
+                oldRanks.keySet().stream().filter(x -> !newFilms.contains(x))
+                        .forEach(x -> toDelete.add(new Object[]{userId, x}));
+                int rank = 0;
+                for (Long filmId : newFilms) {
+                    final Integer oldRank = oldRanks.get(filmId);
+                    if (oldRank == null) {
+                        toInsert.add(new Object[]{userId, filmId, rank});
+                    } else if (oldRank != rank) {
+                        toUpdate.add(new Object[]{rank, userId, filmId});
+                    }
+                    rank++;
+                }
+            }
+
+            if (!toDelete.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM recommendations WHERE user_id = ? AND film_id = ?", toDelete);
+            }
+            if (!toInsert.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO recommendations (user_id, film_id, rank) VALUES (?, ?, ?)",
+                        toInsert);
+            }
+            if (!toUpdate.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE recommendations SET rank = ? WHERE user_id = ? AND film_id = ?",
+                        toUpdate);
+            }
+        }
+    }
+
+    private Map<Long, Map<Long, Integer>> getStoredRanks(List<Recommendation> recommendations) {
+        final Set<Long> usersIds = new HashSet<>();
+        recommendations.forEach(x -> usersIds.add(x.getWhomId()));
+
+        final String sql = "SELECT user_id, film_id, rank FROM recommendations WHERE user_id IN (:ids)";
+        final Map<Long, Map<Long, Integer>> stored = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, Map.of("ids", usersIds), rs -> {
+            stored.computeIfAbsent(rs.getLong("user_id"), k -> new HashMap<>())
+                    .put(rs.getLong("film_id"), rs.getInt("rank"));
+        });
+        return stored;
     }
 }
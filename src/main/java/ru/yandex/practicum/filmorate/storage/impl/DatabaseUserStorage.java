@@ -2,14 +2,18 @@ package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Реализация интерфейса хранилища пользователей, с хранением в реляционной базе данных.
@@ -17,6 +21,8 @@ import java.util.List;
 @Component
 @RequiredArgsConstructor
 public class DatabaseUserStorage implements UserStorage {
+    private static final int FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     /**
@@ -45,6 +51,35 @@ public class DatabaseUserStorage implements UserStorage {
         return users.size() > 0 ? users.get(0) : null;
     }
 
+    /**
+     * Получает страницу пользователей по возрастанию идентификатора поиском по первичному ключу.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во пользователей
+     * @return пользователи с идентификатором больше after по возрастанию идентификатора
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public List<User> getPage(Long after, int limit) {
+        final String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToUser(rs), after != null ? after : Long.MIN_VALUE, limit);
+    }
+
+    /**
+     * Передаёт всех пользователей по возрастанию идентификатора, читая результат порциями по FETCH_SIZE строк.
+     *
+     * @param action обработчик пользователя
+     * @throws SQLException если SQL-запрос выполнился с ошибкой
+     */
+    @Override
+    public void forEach(Consumer<User> action) {
+        jdbcTemplate.query(con -> {
+            final PreparedStatement statement = con.prepareStatement("SELECT * FROM users ORDER BY user_id");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(mapRowToUser(rs)));
+    }
+
     /**
      * Добавляет пользователя в хранилище.
      *
@@ -70,13 +105,19 @@ public class DatabaseUserStorage implements UserStorage {
     }
 
     /**
-     * Удаляет пользователя из хранилища.
+     * Удаляет пользователя из хранилища. Лайки пользователя удаляются каскадно, поэтому счётчики лайков
+     * его фильмов уменьшаются в той же транзакции.
      *
      * @param user пользователь
      * @throws SQLException если SQL-запрос выполнился с ошибкой
      */
     @Override
+    @Transactional
     public void remove(User user) {
+        final String decrementLikes = "UPDATE films SET likes_count = likes_count - 1"
+                + " WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)";
+        jdbcTemplate.update(decrementLikes, user.getId());
+
         final String sql = "DELETE FROM users WHERE user_id = ?";
         jdbcTemplate.update(sql, user.getId());
     }
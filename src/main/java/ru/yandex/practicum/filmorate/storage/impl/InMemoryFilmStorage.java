@@ -1,12 +1,16 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EventOperations;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +42,43 @@ public class InMemoryFilmStorage implements FilmStorage, LikeStorage {
         return films.get(id);
     }
 
+    /**
+     * Получает фильмы по списку идентификаторов.
+     *
+     * @param ids уникальные идентификаторы фильмов
+     * @return фильмы в порядке переданных идентификаторов, несуществующие пропускаются
+     */
+    @Override
+    public List<Film> getAll(Collection<Long> ids) {
+        return ids.stream().map(films::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Получает страницу фильмов по возрастанию идентификатора.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во фильмов
+     * @return фильмы с идентификатором больше after по возрастанию идентификатора
+     */
+    @Override
+    public List<Film> getPage(Long after, int limit) {
+        return films.values().stream()
+                .filter(film -> after == null || film.getId() > after)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Передаёт все фильмы по возрастанию идентификатора.
+     *
+     * @param action обработчик фильма
+     */
+    @Override
+    public void forEach(Consumer<Film> action) {
+        films.values().stream().sorted(Comparator.comparing(Film::getId)).forEach(action);
+    }
+
     /**
      * Добавляет фильм в хранилище.
      *
@@ -48,6 +89,16 @@ public class InMemoryFilmStorage implements FilmStorage, LikeStorage {
         films.put(film.getId(), film);
     }
 
+    /**
+     * Добавляет фильмы в хранилище.
+     *
+     * @param films фильмы
+     */
+    @Override
+    public void addAll(Collection<Film> films) {
+        films.forEach(this::add);
+    }
+
     /**
      * Обновляет фильм в хранилище. По факту просто заменяет старый на новый.
      *
@@ -104,16 +155,52 @@ public class InMemoryFilmStorage implements FilmStorage, LikeStorage {
     }
 
     /**
-     * Возвращает фильмы, которые лайкнул пользователь
+     * Возвращает фильмы, которые лайкнули оба пользователя.
+     *
+     * @param userId   id первого пользователя
+     * @param friendId id второго пользователя
+     * @return фильмы по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     */
+    @Override
+    public List<Film> getCommonFilms(Long userId, Long friendId) {
+        final Comparator<Film> comparator = Comparator.comparingInt(x -> likes.get(x.getId()).size());
+
+        return likes.entrySet().stream()
+                .filter(x -> x.getValue().contains(userId) && x.getValue().contains(friendId))
+                .map(x -> films.get(x.getKey()))
+                .filter(Objects::nonNull)
+                .sorted(comparator.reversed().thenComparing(Film::getId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Применяет добавления и удаления лайков в порядке следования.
      *
-     * @param id id пользователя
+     * @param operations операции с лайками
+     * @return для каждой операции - изменила ли она лайки
      */
     @Override
-    public Collection<Film> getPopularFilmByUserId(Long id) {
-        HashMap<Long, Set<Long>> whoLikes = new HashMap<>(likes);
-        whoLikes.values().removeIf(userSet -> !userSet.contains(id));
+    public boolean[] applyAll(List<LikeOperation> operations) {
+        final boolean[] applied = new boolean[operations.size()];
+        for (int i = 0; i < applied.length; i++) {
+            final LikeOperation like = operations.get(i);
+            applied[i] = like.getOperation() == EventOperations.ADD
+                    ? likes.computeIfAbsent(like.getFilmId(), k -> new HashSet<>()).add(like.getUserId())
+                    : likes.getOrDefault(like.getFilmId(), new HashSet<>()).remove(like.getUserId());
+        }
+        return applied;
+    }
 
-        return whoLikes.keySet().stream().map(films::get).collect(Collectors.toList());
+    /**
+     * Возвращает кол-во лайков каждого фильма.
+     *
+     * @return кол-во лайков с ключом по фильму
+     */
+    @Override
+    public Map<Long, Long> getLikesCounts() {
+        final Map<Long, Long> likesCounts = new HashMap<>();
+        films.keySet().forEach(id -> likesCounts.put(id, (long) likes.getOrDefault(id, Set.of()).size()));
+        return likesCounts;
     }
 
     /**
@@ -126,25 +213,74 @@ public class InMemoryFilmStorage implements FilmStorage, LikeStorage {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Возвращает лайки указанных пользователей сгруппированные по идентификатору пользователя.
+     *
+     * @param usersIds идентификаторы пользователей
+     * @return таблица лайков только для переданных пользователей
+     */
+    @Override
+    public Map<Long, Set<Long>> getUsersLikesMap(Collection<Long> usersIds) {
+        final Set<Long> ids = new HashSet<>(usersIds);
+        final Map<Long, Set<Long>> usersLikes = new HashMap<>();
+        likes.forEach((filmId, whoLikes) -> whoLikes.stream().filter(ids::contains)
+                .forEach(userId -> usersLikes.computeIfAbsent(userId, k -> new HashSet<>()).add(filmId)));
+        return usersLikes;
+    }
+
+    /**
+     * Возвращает пользователей, которые лайкнули хотя бы один из указанных фильмов.
+     *
+     * @param filmsIds идентификаторы фильмов
+     * @return множество идентификаторов пользователей
+     */
+    @Override
+    public Set<Long> getUsersIdsByFilmsIds(Collection<Long> filmsIds) {
+        return filmsIds.stream().flatMap(x -> likes.getOrDefault(x, Set.of()).stream()).collect(Collectors.toSet());
+    }
+
+    /**
+     * Возвращает все лайки в виде компактной матрицы пользователь x фильм.
+     *
+     * @return матрица лайков
+     */
+    @Override
+    public LikeMatrix getLikeMatrix() {
+        final LikeMatrix.Builder builder = LikeMatrix.builder();
+        likes.forEach((filmId, whoLikes) -> whoLikes.forEach(userId -> builder.add(userId, filmId)));
+        return builder.build();
+    }
+
     /**
      * Добавляет лайк в хранилище.
      *
      * @param like лайк
+     * @return true если лайка ещё не было
      */
     @Override
-    public void save(Like like) {
-        Set<Long> whoLikes = likes.getOrDefault(like.getFilm().getId(), new HashSet<>());
-        whoLikes.add(like.getUser().getId());
-        likes.put(like.getFilm().getId(), whoLikes);
+    public boolean save(Like like) {
+        return likes.computeIfAbsent(like.getFilm().getId(), id -> new HashSet<>()).add(like.getUser().getId());
     }
 
     /**
      * Удаляет лайк из хранилища.
      *
      * @param like лайк
+     * @return true если лайк был
+     */
+    @Override
+    public boolean delete(Like like) {
+        final Set<Long> whoLikes = likes.get(like.getFilm().getId());
+        return whoLikes != null && whoLikes.remove(like.getUser().getId());
+    }
+
+    /**
+     * Счётчики лайков не хранятся отдельно, пересчитывать нечего.
+     *
+     * @return 0
      */
     @Override
-    public void delete(Like like) {
-        likes.get(like.getFilm().getId()).remove(like.getUser().getId());
+    public int recountLikes() {
+        return 0;
     }
 }
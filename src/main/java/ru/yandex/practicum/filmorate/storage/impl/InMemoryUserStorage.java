@@ -5,7 +5,11 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Реализация интерфейса хранилища пользователей, с хранением в оперативной памяти.
@@ -35,6 +39,32 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
+    /**
+     * Получает страницу пользователей по возрастанию идентификатора.
+     *
+     * @param after идентификатор, после которого начинается страница, или null для первой страницы
+     * @param limit максимальное кол-во пользователей
+     * @return пользователи с идентификатором больше after по возрастанию идентификатора
+     */
+    @Override
+    public List<User> getPage(Long after, int limit) {
+        return users.values().stream()
+                .filter(user -> after == null || user.getId() > after)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Передаёт всех пользователей по возрастанию идентификатора.
+     *
+     * @param action обработчик пользователя
+     */
+    @Override
+    public void forEach(Consumer<User> action) {
+        users.values().stream().sorted(Comparator.comparing(User::getId)).forEach(action);
+    }
+
     /**
      * Добавляет пользователя в хранилище.
      *
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.utils;
+
+/**
+ * Утилитарный класс упаковки пары фильм-пользователь в один long: идентификатор фильма в старших 32 битах,
+ * пользователя - в младших. Упаковать можно только пары с неотрицательными идентификаторами не больше 2^32 - 1.
+ */
+public final class FilmUserKey {
+    private static final long MAX_ID = 0xFFFF_FFFFL;
+
+    private FilmUserKey() {
+    }
+
+    /**
+     * Проверяет, что пару можно упаковать.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true если оба идентификатора помещаются в 32 бита
+     */
+    public static boolean fits(long filmId, long userId) {
+        return filmId >= 0 && filmId <= MAX_ID && userId >= 0 && userId <= MAX_ID;
+    }
+
+    /**
+     * Упаковывает пару. Пара должна проходить проверку {@link #fits(long, long)}.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return ключ пары
+     */
+    public static long pack(long filmId, long userId) {
+        return filmId << 32 | userId;
+    }
+
+    /**
+     * @param key ключ пары
+     * @return идентификатор фильма
+     */
+    public static long filmId(long key) {
+        return key >>> 32;
+    }
+
+    /**
+     * @param key ключ пары
+     * @return идентификатор пользователя
+     */
+    public static long userId(long key) {
+        return key & MAX_ID;
+    }
+}
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Компактная матрица лайков пользователь x фильм. Идентификаторы пользователей и фильмов отображаются
+ * в плотные int-индексы (в порядке возрастания идентификаторов), а строки и столбцы матрицы хранятся
+ * сжатыми битовыми картами. Занимает единицы байт на лайк вместо десятков у Map&lt;Long, Set&lt;Long&gt;&gt;.
+ * <p>
+ * После построения неизменяема и может читаться из нескольких потоков.
+ */
+public final class LikeMatrix {
+    private final long[] usersIds;
+    private final long[] filmsIds;
+    private final RoaringBitmap[] usersFilms;
+    private final RoaringBitmap[] filmsUsers;
+
+    private LikeMatrix(long[] usersIds, long[] filmsIds, RoaringBitmap[] usersFilms, RoaringBitmap[] filmsUsers) {
+        this.usersIds = usersIds;
+        this.filmsIds = filmsIds;
+        this.usersFilms = usersFilms;
+        this.filmsUsers = filmsUsers;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getUsersCount() {
+        return usersIds.length;
+    }
+
+    public int getFilmsCount() {
+        return filmsIds.length;
+    }
+
+    /**
+     * @param user плотный индекс пользователя
+     * @return уникальный идентификатор пользователя
+     */
+    public long getUserId(int user) {
+        return usersIds[user];
+    }
+
+    /**
+     * @param film плотный индекс фильма
+     * @return уникальный идентификатор фильма
+     */
+    public long getFilmId(int film) {
+        return filmsIds[film];
+    }
+
+    /**
+     * @param userId уникальный идентификатор пользователя
+     * @return плотный индекс пользователя или -1 если у пользователя нет лайков
+     */
+    public int indexOfUser(long userId) {
+        final int i = Arrays.binarySearch(usersIds, userId);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * @param filmId уникальный идентификатор фильма
+     * @return плотный индекс фильма или -1 если у фильма нет лайков
+     */
+    public int indexOfFilm(long filmId) {
+        final int i = Arrays.binarySearch(filmsIds, filmId);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * Возвращает лайки пользователя. Битовую карту нельзя изменять.
+     *
+     * @param user плотный индекс пользователя
+     * @return плотные индексы лайкнутых фильмов
+     */
+    public RoaringBitmap getUserFilms(int user) {
+        return usersFilms[user];
+    }
+
+    /**
+     * Возвращает пользователей, лайкнувших фильм. Битовую карту нельзя изменять.
+     *
+     * @param film плотный индекс фильма
+     * @return плотные индексы пользователей
+     */
+    public RoaringBitmap getFilmUsers(int film) {
+        return filmsUsers[film];
+    }
+
+    /**
+     * @param user плотный индекс пользователя
+     * @return кол-во лайков пользователя
+     */
+    public int getLikesCount(int user) {
+        return usersFilms[user].getCardinality();
+    }
+
+    /**
+     * Считает кол-во общих лайков двух пользователей без создания промежуточных множеств.
+     *
+     * @param user  плотный индекс пользователя
+     * @param other плотный индекс другого пользователя
+     * @return мощность пересечения лайков
+     */
+    public int getCommonLikesCount(int user, int other) {
+        return RoaringBitmap.andCardinality(usersFilms[user], usersFilms[other]);
+    }
+
+    /**
+     * Возвращает пользователей, лайкнувших хотя бы один фильм пользователя, включая его самого.
+     *
+     * @param user плотный индекс пользователя
+     * @return плотные индексы пользователей
+     */
+    public RoaringBitmap getCoLikers(int user) {
+        final RoaringBitmap films = usersFilms[user];
+        final RoaringBitmap[] columns = new RoaringBitmap[films.getCardinality()];
+        int i = 0;
+        for (int film : films) {
+            columns[i++] = filmsUsers[film];
+        }
+        return FastAggregation.or(columns);
+    }
+
+    /**
+     * Построитель матрицы. Принимает лайки в любом порядке, дубликаты игнорируются.
+     */
+    public static final class Builder {
+        private long[] users = new long[64];
+        private long[] films = new long[64];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(long userId, long filmId) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                films = Arrays.copyOf(films, size * 2);
+            }
+            users[size] = userId;
+            films[size] = filmId;
+            size++;
+            return this;
+        }
+
+        public LikeMatrix build() {
+            final long[] usersIds = distinctSorted(users, size);
+            final long[] filmsIds = distinctSorted(films, size);
+
+            final RoaringBitmap[] usersFilms = new RoaringBitmap[usersIds.length];
+            final RoaringBitmap[] filmsUsers = new RoaringBitmap[filmsIds.length];
+            Arrays.setAll(usersFilms, i -> new RoaringBitmap());
+            Arrays.setAll(filmsUsers, i -> new RoaringBitmap());
+
+            for (int i = 0; i < size; i++) {
+                final int user = Arrays.binarySearch(usersIds, users[i]);
+                final int film = Arrays.binarySearch(filmsIds, films[i]);
+                usersFilms[user].add(film);
+                filmsUsers[film].add(user);
+            }
+
+            for (RoaringBitmap bitmap : usersFilms) bitmap.runOptimize();
+            for (RoaringBitmap bitmap : filmsUsers) bitmap.runOptimize();
+
+            return new LikeMatrix(usersIds, filmsIds, usersFilms, filmsUsers);
+        }
+
+        private static long[] distinctSorted(long[] values, int size) {
+            final long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+}
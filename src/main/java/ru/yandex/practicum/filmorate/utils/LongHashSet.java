@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество примитивных long на открытой адресации. Не хранит упакованные Long, поэтому занимает
+ * в несколько раз меньше памяти чем HashSet&lt;Long&gt;. Не потокобезопасно.
+ */
+public final class LongHashSet {
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean hasFreeKey;
+    private int size;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    /**
+     * @param expectedSize ожидаемое кол-во элементов
+     */
+    public LongHashSet(int expectedSize) {
+        keys = new long[capacityFor(expectedSize)];
+    }
+
+    /**
+     * Добавляет значение.
+     *
+     * @param key значение
+     * @return true если значения ещё не было в множестве
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            if (hasFreeKey) return false;
+            hasFreeKey = true;
+            size++;
+            return true;
+        }
+
+        int i = indexOf(keys, key);
+        if (keys[i] == key) return false;
+        keys[i] = key;
+        if (++size > keys.length * LOAD_FACTOR) rehash(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * Проверяет наличие значения.
+     *
+     * @param key значение
+     * @return true если значение есть в множестве
+     */
+    public boolean contains(long key) {
+        if (key == FREE) return hasFreeKey;
+        return keys[indexOf(keys, key)] == key;
+    }
+
+    /**
+     * Удаляет значение. Использует обратный сдвиг, поэтому не оставляет "надгробий".
+     *
+     * @param key значение
+     * @return true если значение было в множестве
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            if (!hasFreeKey) return false;
+            hasFreeKey = false;
+            size--;
+            return true;
+        }
+
+        int i = indexOf(keys, key);
+        if (keys[i] != key) return false;
+
+        final int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == FREE) break;
+            final int home = mix(keys[j]) & mask;
+            // элемент j можно сдвинуть в дыру i, если его "домашний" слот не лежит между i и j
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = keys[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает размер внутренней таблицы, по нему оценивается занимаемая память.
+     *
+     * @return кол-во ячеек таблицы
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Обходит все значения множества.
+     *
+     * @param action действие над значением
+     */
+    public void forEach(LongConsumer action) {
+        if (hasFreeKey) action.accept(FREE);
+        for (long key : keys) {
+            if (key != FREE) action.accept(key);
+        }
+    }
+
+    /**
+     * @return значения множества в порядке возрастания
+     */
+    public long[] toSortedArray() {
+        final long[] result = new long[size];
+        int i = 0;
+        if (hasFreeKey) result[i++] = FREE;
+        for (long key : keys) {
+            if (key != FREE) result[i++] = key;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        keys = new long[capacity];
+        for (long key : oldKeys) {
+            if (key != FREE) keys[indexOf(keys, key)] = key;
+        }
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        final int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static int mix(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Приближённый поиск похожих пользователей (MinHash + LSH). Для каждого пользователя считается MinHash-подпись
+ * из bands * rows хэшей его лайков; подпись режется на bands полос по rows хэшей, и пользователи с одинаковой
+ * полосой попадают в одну корзину. Кандидатами считаются только пользователи из общих корзин.
+ * <p>
+ * Вероятность стать кандидатами для пары со сходством Жаккара s равна 1 - (1 - s^rows)^bands, порог
+ * примерно (1 / bands)^(1 / rows): больше полос - выше полнота, больше строк в полосе - меньше кандидатов.
+ * После построения неизменяем и может читаться из нескольких потоков.
+ */
+public final class MinHashLsh {
+    private final int bands;
+    // хэш полосы b пользователя u лежит в bandHashes[u * bands + b]
+    private final int[] bandHashes;
+    // корзины полосы: упакованные пары (хэш полосы << 32 | пользователь) по возрастанию
+    private final long[][] buckets;
+
+    private MinHashLsh(int bands, int[] bandHashes, long[][] buckets) {
+        this.bands = bands;
+        this.bandHashes = bandHashes;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Строит индекс по матрице лайков.
+     *
+     * @param likeMatrix матрица лайков
+     * @param bands      кол-во полос
+     * @param rows       кол-во хэшей в полосе
+     * @param seed       зерно генератора хэш-функций
+     * @return индекс похожих пользователей
+     */
+    public static MinHashLsh build(LikeMatrix likeMatrix, int bands, int rows, long seed) {
+        final int hashesCount = bands * rows;
+        final long[] multipliers = new long[hashesCount];
+        final long[] increments = new long[hashesCount];
+        final Random random = new Random(seed);
+        for (int i = 0; i < hashesCount; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+
+        final int usersCount = likeMatrix.getUsersCount();
+        final int[] bandHashes = new int[usersCount * bands];
+        final long[] signature = new long[hashesCount];
+
+        for (int user = 0; user < usersCount; user++) {
+            Arrays.fill(signature, Long.MAX_VALUE);
+            for (int film : likeMatrix.getUserFilms(user)) {
+                final long filmId = likeMatrix.getFilmId(film);
+                for (int i = 0; i < hashesCount; i++) {
+                    final long hash = mix(filmId * multipliers[i] + increments[i]);
+                    if (hash < signature[i]) signature[i] = hash;
+                }
+            }
+            for (int band = 0; band < bands; band++) {
+                long hash = band;
+                for (int row = 0; row < rows; row++) {
+                    hash = mix(hash * 31 + signature[band * rows + row]);
+                }
+                bandHashes[user * bands + band] = (int) (hash ^ (hash >>> 32));
+            }
+        }
+
+        final long[][] buckets = new long[bands][usersCount];
+        for (int band = 0; band < bands; band++) {
+            for (int user = 0; user < usersCount; user++) {
+                buckets[band][user] = pack(bandHashes[user * bands + band], user);
+            }
+            Arrays.sort(buckets[band]);
+        }
+
+        return new MinHashLsh(bands, bandHashes, buckets);
+    }
+
+    /**
+     * Возвращает кандидатов в похожие пользователи: всех, кто попал с пользователем хотя бы в одну корзину,
+     * включая его самого. Среди кандидатов возможны пользователи без общих лайков (коллизии хэшей).
+     *
+     * @param user плотный индекс пользователя в матрице лайков
+     * @return плотные индексы кандидатов
+     */
+    public RoaringBitmap getCandidates(int user) {
+        final RoaringBitmap candidates = new RoaringBitmap();
+        for (int band = 0; band < bands; band++) {
+            final long[] bucket = buckets[band];
+            final int hash = bandHashes[user * bands + band];
+            // первый элемент корзины - с наименьшим пользователем, т.е. (хэш << 32 | 0)
+            int i = Arrays.binarySearch(bucket, pack(hash, 0));
+            if (i < 0) i = -i - 1;
+            for (; i < bucket.length && (int) (bucket[i] >> 32) == hash; i++) {
+                candidates.add((int) bucket[i]);
+            }
+        }
+        return candidates;
+    }
+
+    private static long pack(int hash, int user) {
+        return ((long) hash << 32) | user;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+}
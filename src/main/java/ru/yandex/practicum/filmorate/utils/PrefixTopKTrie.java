@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.*;
+
+/**
+ * Префиксное дерево названий, в каждом узле которого хранятся K самых популярных идентификаторов поддерева
+ * (по убыванию кол-ва лайков, при равенстве - по возрастанию id). Ответ на префиксный запрос - спуск
+ * по префиксу и чтение готового списка узла, без обхода поддерева.
+ * <p>
+ * Для экономии памяти дети узла лежат в отсортированных массивах символов и узлов, а списки - в массивах long;
+ * узлы неветвящихся цепочек делят массив списка с ребёнком.
+ * При изменении названия или кол-ва лайков списки пересчитываются только на пути от узла названия к корню:
+ * список узла - это лучшие K из названий, заканчивающихся в нём, и списков его детей. Не потокобезопасен.
+ */
+public final class PrefixTopKTrie {
+    private static final long[] NO_IDS = new long[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int k;
+    private final Node root = new Node();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<Long, Long> likes = new HashMap<>();
+
+    /**
+     * @param k кол-во идентификаторов в списке узла
+     * @throws IllegalArgumentException - если k меньше 1.
+     */
+    public PrefixTopKTrie(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        this.k = k;
+    }
+
+    /**
+     * Добавляет название, заменяя прежнее название с тем же идентификатором.
+     *
+     * @param id    идентификатор
+     * @param title название
+     * @param count кол-во лайков
+     */
+    public void add(long id, String title, long count) {
+        remove(id);
+        final String normalized = TrigramIndex.normalize(title);
+        titles.put(id, normalized);
+        likes.put(id, count);
+
+        final List<Node> path = new ArrayList<>(normalized.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.getOrAddChild(normalized.charAt(i));
+            path.add(node);
+        }
+        node.ending = append(node.ending, id);
+        recompute(path);
+    }
+
+    /**
+     * Удаляет название.
+     *
+     * @param id идентификатор
+     */
+    public void remove(long id) {
+        final String normalized = titles.remove(id);
+        if (normalized == null) return;
+
+        final List<Node> path = findPath(normalized);
+        final Node last = path.get(path.size() - 1);
+        last.ending = without(last.ending, id);
+        likes.remove(id);
+
+        for (int i = path.size() - 1; i > 0; i--) {
+            final Node node = path.get(i);
+            if (node.ending.length > 0 || node.keys.length > 0) break;
+            path.get(i - 1).removeChild(normalized.charAt(i - 1));
+            path.remove(i);
+        }
+        recompute(path);
+    }
+
+    /**
+     * Меняет кол-во лайков названия.
+     *
+     * @param id    идентификатор
+     * @param count новое кол-во лайков
+     */
+    public void setLikes(long id, long count) {
+        final String normalized = titles.get(id);
+        if (normalized == null) return;
+        likes.put(id, count);
+        recompute(findPath(normalized));
+    }
+
+    /**
+     * Возвращает кол-во лайков названия.
+     *
+     * @param id идентификатор
+     * @return кол-во лайков или 0, если названия нет
+     */
+    public long getLikes(long id) {
+        return likes.getOrDefault(id, 0L);
+    }
+
+    /**
+     * Возвращает самые популярные названия, начинающиеся с префикса без учёта регистра.
+     *
+     * @param prefix префикс
+     * @param count  максимальное кол-во, не больше K
+     * @return идентификаторы по убыванию кол-ва лайков, при равенстве - по возрастанию id
+     */
+    public long[] top(String prefix, int count) {
+        final String normalized = TrigramIndex.normalize(prefix);
+        Node node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.getChild(normalized.charAt(i));
+        }
+        if (node == null) return NO_IDS;
+        return Arrays.copyOf(node.top, Math.min(count, node.top.length));
+    }
+
+    /**
+     * Возвращает кол-во названий.
+     *
+     * @return кол-во названий
+     */
+    public int size() {
+        return titles.size();
+    }
+
+    private List<Node> findPath(String normalized) {
+        final List<Node> path = new ArrayList<>(normalized.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.getChild(normalized.charAt(i));
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void recompute(List<Node> path) {
+        final long[] topIds = new long[k];
+        final long[] topLikes = new long[k];
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final Node node = path.get(i);
+            if (node.ending.length == 0 && node.children.length == 1) {
+                // узел цепочки без своих названий - список совпадает со списком ребёнка, массив общий
+                node.top = node.children[0].top;
+                continue;
+            }
+
+            int size = 0;
+            for (long id : node.ending) {
+                size = offer(topIds, topLikes, size, id, getLikes(id));
+            }
+            for (Node child : node.children) {
+                // список ребёнка упорядочен, поэтому после первого не попавшего в топ остальные тоже не попадут
+                for (long id : child.top) {
+                    final long count = getLikes(id);
+                    if (size == k && !precedes(id, count, topIds[k - 1], topLikes[k - 1])) break;
+                    size = offer(topIds, topLikes, size, id, count);
+                }
+            }
+            node.top = Arrays.copyOf(topIds, size);
+        }
+    }
+
+    /**
+     * Вставляет идентификатор в упорядоченный топ, если он туда проходит.
+     *
+     * @return новый размер топа
+     */
+    private int offer(long[] topIds, long[] topLikes, int size, long id, long count) {
+        int i = size;
+        while (i > 0 && precedes(id, count, topIds[i - 1], topLikes[i - 1])) {
+            i--;
+        }
+        if (i >= k) return size;
+
+        final int last = Math.min(size, k - 1);
+        System.arraycopy(topIds, i, topIds, i + 1, last - i);
+        System.arraycopy(topLikes, i, topLikes, i + 1, last - i);
+        topIds[i] = id;
+        topLikes[i] = count;
+        return Math.min(size + 1, k);
+    }
+
+    private static boolean precedes(long id, long count, long otherId, long otherCount) {
+        return count > otherCount || count == otherCount && id < otherId;
+    }
+
+    private static long[] append(long[] ids, long id) {
+        final long[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static long[] without(long[] ids, long id) {
+        return Arrays.stream(ids).filter(x -> x != id).toArray();
+    }
+
+    private static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private long[] ending = NO_IDS;
+        private long[] top = NO_IDS;
+
+        Node getChild(char c) {
+            final int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return children[i];
+
+            i = -i - 1;
+            final char[] newKeys = new char[keys.length + 1];
+            final Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newKeys[i] = c;
+            newChildren[i] = new Node();
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[i];
+        }
+
+        void removeChild(char c) {
+            final int i = Arrays.binarySearch(keys, c);
+            if (i < 0) return;
+
+            final char[] newKeys = new char[keys.length - 1];
+            final Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            keys = newKeys.length == 0 ? NO_KEYS : newKeys;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+    }
+}
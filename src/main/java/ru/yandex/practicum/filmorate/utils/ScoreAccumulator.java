@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.utils;
+
+/**
+ * Накопитель положительных весов по плотным int-индексам. Переиспользуется между расчётами: сброс
+ * обнуляет только затронутые ячейки, поэтому стоит O(кол-во затронутых), а не O(размер).
+ * Не потокобезопасен.
+ */
+public final class ScoreAccumulator {
+    private final double[] scores;
+    private final int[] touched;
+    private int touchedCount;
+
+    /**
+     * @param capacity кол-во возможных индексов
+     */
+    public ScoreAccumulator(int capacity) {
+        scores = new double[capacity];
+        touched = new int[capacity];
+    }
+
+    /**
+     * Прибавляет вес к индексу.
+     *
+     * @param index индекс
+     * @param score положительный вес
+     */
+    public void add(int index, double score) {
+        if (scores[index] == 0) touched[touchedCount++] = index;
+        scores[index] += score;
+    }
+
+    /**
+     * Переносит накопленные веса в кучу и сбрасывает накопитель.
+     *
+     * @param heap куча для отбора лучших
+     */
+    public void drainTo(TopKHeap heap) {
+        for (int i = 0; i < touchedCount; i++) {
+            final int index = touched[i];
+            heap.offer(index, scores[index]);
+            scores[index] = 0;
+        }
+        touchedCount = 0;
+    }
+}
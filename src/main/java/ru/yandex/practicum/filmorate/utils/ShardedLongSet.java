@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.Arrays;
+
+/**
+ * Потокобезопасное множество примитивных long: значения распределяются по независимым {@link LongHashSet}
+ * по хэшу, у каждой части своя блокировка, поэтому потоки, работающие с разными частями, не ждут друг друга.
+ */
+public final class ShardedLongSet {
+    private final LongHashSet[] shards;
+
+    /**
+     * @param shardsCount кол-во частей, округляется вверх до степени двойки
+     */
+    public ShardedLongSet(int shardsCount) {
+        shards = new LongHashSet[shardsCount <= 1 ? 1 : Integer.highestOneBit(shardsCount - 1) << 1];
+        Arrays.setAll(shards, i -> new LongHashSet());
+    }
+
+    /**
+     * Добавляет значение.
+     *
+     * @param key значение
+     * @return true если значения ещё не было в множестве
+     */
+    public boolean add(long key) {
+        final LongHashSet shard = shard(key);
+        synchronized (shard) {
+            return shard.add(key);
+        }
+    }
+
+    /**
+     * Проверяет наличие значения.
+     *
+     * @param key значение
+     * @return true если значение есть в множестве
+     */
+    public boolean contains(long key) {
+        final LongHashSet shard = shard(key);
+        synchronized (shard) {
+            return shard.contains(key);
+        }
+    }
+
+    /**
+     * Удаляет значение.
+     *
+     * @param key значение
+     * @return true если значение было в множестве
+     */
+    public boolean remove(long key) {
+        final LongHashSet shard = shard(key);
+        synchronized (shard) {
+            return shard.remove(key);
+        }
+    }
+
+    /**
+     * Возвращает кол-во значений.
+     *
+     * @return кол-во значений
+     */
+    public int size() {
+        int size = 0;
+        for (LongHashSet shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    private LongHashSet shard(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return shards[(int) (hash >>> 32) & (shards.length - 1)];
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.stream.IntStream;
+
+/**
+ * Ограниченная куча для отбора K элементов с наибольшим весом. Хранит int-идентификаторы и веса
+ * в примитивных массивах фиксированного размера, поэтому не создаёт объектов при добавлении.
+ * При равных весах выше ставится меньший идентификатор. Не потокобезопасна.
+ */
+public final class TopKHeap {
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    /**
+     * @param k максимальное кол-во хранимых элементов
+     */
+    public TopKHeap(int k) {
+        ids = new int[k];
+        scores = new double[k];
+    }
+
+    /**
+     * Предлагает элемент. Если куча заполнена, элемент вытесняет худший, только если лучше его.
+     *
+     * @param id    идентификатор
+     * @param score вес
+     */
+    public void offer(int id, double score) {
+        if (ids.length == 0) return;
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isWorse(ids[0], scores[0], id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param i позиция в куче от 0 до size()
+     * @return идентификатор элемента
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i позиция в куче от 0 до size()
+     * @return вес элемента
+     */
+    public double getScore(int i) {
+        return scores[i];
+    }
+
+    /**
+     * @return идентификаторы по убыванию веса
+     */
+    public int[] toSortedIds() {
+        return IntStream.range(0, size).boxed()
+                .sorted((i, j) -> isWorse(ids[i], scores[i], ids[j], scores[j]) ? 1
+                        : isWorse(ids[j], scores[j], ids[i], scores[i]) ? -1 : 0)
+                .mapToInt(i -> ids[i]).toArray();
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!isWorse(ids[i], scores[i], ids[parent], scores[parent])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= size) break;
+            final int right = left + 1;
+            int worst = left;
+            if (right < size && isWorse(ids[right], scores[right], ids[left], scores[left])) worst = right;
+            if (!isWorse(ids[worst], scores[worst], ids[i], scores[i])) break;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        final int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        final double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    private static boolean isWorse(int id, double score, int otherId, double otherScore) {
+        return score < otherScore || (score == otherScore && id > otherId);
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.*;
+
+/**
+ * Счётчики лайков фильмов в скользящем окне с экспоненциальным затуханием. Время разбито на корзины
+ * фиксированной длины; у каждого фильма кольцевой буфер из последних корзин, и лайк увеличивает счётчик
+ * корзины своего времени. Вес фильма за окно - сумма счётчиков корзин окна, каждый из которых умножен
+ * на 2^(-возраст / период полураспада), поэтому свежие лайки весят больше старых.
+ * <p>
+ * Чтобы удаление лайка уменьшало ту корзину, в которую он был посчитан, для лайков из буфера
+ * запоминается их корзина. Устаревшие корзины, лайки и фильмы без лайков в буфере удаляются при переходе
+ * времени в следующую корзину, поэтому память пропорциональна активности за буфер, а не всей истории.
+ * Пары с идентификаторами больше 2^32 считаются, но их удаление не учитывается. Не потокобезопасен.
+ */
+public final class TrendingCounters {
+    private final long bucketMillis;
+    private final int bucketsCount;
+    private final double[] weights;
+    private final TreeMap<Long, FilmCounter> films = new TreeMap<>();
+    private final Map<Long, Long> likeBuckets = new HashMap<>();
+    private long currentBucket = Long.MIN_VALUE;
+
+    /**
+     * @param bucketMillis   длина корзины в миллисекундах
+     * @param bucketsCount   кол-во хранимых корзин, т.е. максимальное окно в корзинах
+     * @param halfLifeMillis период полураспада веса лайка в миллисекундах
+     */
+    public TrendingCounters(long bucketMillis, int bucketsCount, long halfLifeMillis) {
+        this.bucketMillis = bucketMillis;
+        this.bucketsCount = bucketsCount;
+        this.weights = new double[bucketsCount];
+        for (int age = 0; age < bucketsCount; age++) {
+            weights[age] = Math.pow(0.5, (double) age * bucketMillis / halfLifeMillis);
+        }
+    }
+
+    /**
+     * Учитывает лайк. Лайки старше буфера игнорируются.
+     *
+     * @param filmId    идентификатор фильма
+     * @param userId    идентификатор пользователя
+     * @param timestamp время лайка в миллисекундах
+     */
+    public void add(long filmId, long userId, long timestamp) {
+        final long bucket = Math.floorDiv(timestamp, bucketMillis);
+        advance(bucket);
+        if (isExpired(bucket)) return;
+
+        final FilmCounter counter = films.computeIfAbsent(filmId, id -> new FilmCounter(bucketsCount));
+        counter.advance(bucket);
+        counter.ring[index(bucket)]++;
+        if (FilmUserKey.fits(filmId, userId)) likeBuckets.put(FilmUserKey.pack(filmId, userId), bucket);
+    }
+
+    /**
+     * Отменяет лайк, если он был учтён и его корзина ещё в буфере.
+     *
+     * @param filmId    идентификатор фильма
+     * @param userId    идентификатор пользователя
+     * @param timestamp время удаления в миллисекундах
+     */
+    public void remove(long filmId, long userId, long timestamp) {
+        advance(Math.floorDiv(timestamp, bucketMillis));
+        if (!FilmUserKey.fits(filmId, userId)) return;
+        final Long bucket = likeBuckets.remove(FilmUserKey.pack(filmId, userId));
+        if (bucket != null) decrement(filmId, bucket);
+    }
+
+    /**
+     * Удаляет фильм.
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeFilm(long filmId) {
+        films.remove(filmId);
+        likeBuckets.keySet().removeIf(key -> FilmUserKey.filmId(key) == filmId);
+    }
+
+    /**
+     * Отменяет все учтённые лайки пользователя.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void removeUser(long userId) {
+        for (Iterator<Map.Entry<Long, Long>> it = likeBuckets.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<Long, Long> like = it.next();
+            if (FilmUserKey.userId(like.getKey()) != userId) continue;
+            decrement(FilmUserKey.filmId(like.getKey()), like.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Возвращает фильмы с наибольшим весом за окно. Обходит только фильмы с лайками в буфере.
+     *
+     * @param count        максимальное кол-во фильмов
+     * @param windowMillis окно в миллисекундах, округляется вверх до корзин и не больше буфера
+     * @param now          текущее время в миллисекундах
+     * @return идентификаторы фильмов по убыванию веса, при равенстве - по возрастанию id
+     */
+    public List<Long> top(int count, long windowMillis, long now) {
+        final long nowBucket = Math.floorDiv(now, bucketMillis);
+        final int windowBuckets = (int) Math.min(bucketsCount, (windowMillis + bucketMillis - 1) / bucketMillis);
+
+        // фильмы обходятся по возрастанию id, поэтому при равных весах куча предпочтёт меньший id
+        final TopKHeap heap = new TopKHeap(Math.min(count, films.size()));
+        final long[] ids = new long[films.size()];
+        int i = 0;
+        for (Map.Entry<Long, FilmCounter> film : films.entrySet()) {
+            final double score = film.getValue().score(nowBucket, windowBuckets);
+            if (score <= 0) continue;
+            ids[i] = film.getKey();
+            heap.offer(i++, score);
+        }
+
+        final List<Long> top = new ArrayList<>(heap.size());
+        for (int index : heap.toSortedIds()) {
+            top.add(ids[index]);
+        }
+        return top;
+    }
+
+    /**
+     * Возвращает фильмы с лайками в буфере.
+     *
+     * @return идентификаторы фильмов по возрастанию
+     */
+    public List<Long> getFilmIds() {
+        return new ArrayList<>(films.keySet());
+    }
+
+    /**
+     * Возвращает кол-во фильмов с лайками в буфере.
+     *
+     * @return кол-во фильмов
+     */
+    public int size() {
+        return films.size();
+    }
+
+    private void advance(long bucket) {
+        if (bucket <= currentBucket) return;
+        currentBucket = bucket;
+        likeBuckets.values().removeIf(this::isExpired);
+        films.values().removeIf(counter -> isExpired(counter.last) || counter.isEmpty(bucket));
+    }
+
+    private void decrement(long filmId, long bucket) {
+        final FilmCounter counter = films.get(filmId);
+        if (counter == null || bucket <= counter.last - bucketsCount || counter.ring[index(bucket)] == 0) return;
+        counter.ring[index(bucket)]--;
+    }
+
+    private boolean isExpired(long bucket) {
+        return bucket <= currentBucket - bucketsCount;
+    }
+
+    private int index(long bucket) {
+        return (int) Math.floorMod(bucket, (long) bucketsCount);
+    }
+
+    private final class FilmCounter {
+        private final int[] ring;
+        private long last = Long.MIN_VALUE;
+
+        FilmCounter(int bucketsCount) {
+            ring = new int[bucketsCount];
+        }
+
+        /**
+         * Сдвигает буфер до корзины, обнуляя корзины, из которых он вышел.
+         */
+        void advance(long bucket) {
+            if (bucket <= last) return;
+            if (last == Long.MIN_VALUE || bucket - last >= ring.length) {
+                Arrays.fill(ring, 0);
+            } else {
+                for (long b = last + 1; b <= bucket; b++) {
+                    ring[index(b)] = 0;
+                }
+            }
+            last = bucket;
+        }
+
+        double score(long nowBucket, int windowBuckets) {
+            double score = 0;
+            for (int age = 0; age < windowBuckets; age++) {
+                final long bucket = nowBucket - age;
+                if (bucket > last || bucket <= last - ring.length) continue;
+                score += ring[index(bucket)] * weights[age];
+            }
+            return score;
+        }
+
+        boolean isEmpty(long nowBucket) {
+            for (int age = 0; age < ring.length; age++) {
+                final long bucket = nowBucket - age;
+                if (bucket <= last && bucket > last - ring.length && ring[index(bucket)] != 0) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * Инвертированный индекс триграмм для поиска подстроки в названиях. Название приводится к нижнему регистру
+ * и раскладывается на все подстроки длины 3; для каждой триграммы хранится множество идентификаторов
+ * с ней (posting list). Запрос раскладывается так же, списки его триграмм пересекаются начиная с самого
+ * короткого, а найденные кандидаты проверяются на настоящее вхождение подстроки.
+ * Запросы короче трёх символов проверяются перебором названий.
+ * <p>
+ * Нечёткий поиск ведётся по отдельному индексу триграмм слов, дополненных двумя пробелами в начале и одним
+ * в конце ("  ma", "ix "): так у края слова больше триграмм, опечатка в коротком слове оставляет часть общих,
+ * а запросы из одного-двух символов тоже раскладываются на триграммы. Сходство - коэффициент Дайса
+ * 2c / (|Q| + |T|) по множествам дополненных триграмм запроса и названия. Чтобы не обходить длинные списки
+ * частых триграмм, кандидаты берутся только из самых коротких списков: при пороге t у подходящего названия
+ * не меньше m = t|Q| / (2 - t) общих триграмм, и оно обязано встретиться в любых |Q| - m + 1 из списков
+ * запроса. Не потокобезопасен.
+ */
+public final class TrigramIndex {
+    public static final int N = 3;
+
+    private static final LongHashSet EMPTY = new LongHashSet();
+
+    private final Map<Long, LongHashSet> postings = new HashMap<>();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<Long, LongHashSet> fuzzyPostings = new HashMap<>();
+    private final Map<Long, Integer> fuzzySizes = new HashMap<>();
+
+    /**
+     * Добавляет название в индекс, заменяя прежнее название с тем же идентификатором.
+     *
+     * @param id    идентификатор
+     * @param title название
+     */
+    public void add(long id, String title) {
+        remove(id);
+        final String normalized = normalize(title);
+        titles.put(id, normalized);
+        for (long trigram : trigrams(normalized)) {
+            postings.computeIfAbsent(trigram, k -> new LongHashSet()).add(id);
+        }
+        final long[] padded = paddedTrigrams(normalized);
+        fuzzySizes.put(id, padded.length);
+        for (long trigram : padded) {
+            fuzzyPostings.computeIfAbsent(trigram, k -> new LongHashSet()).add(id);
+        }
+    }
+
+    /**
+     * Удаляет название из индекса.
+     *
+     * @param id идентификатор
+     */
+    public void remove(long id) {
+        final String normalized = titles.remove(id);
+        if (normalized == null) return;
+        removeFrom(postings, trigrams(normalized), id);
+        removeFrom(fuzzyPostings, paddedTrigrams(normalized), id);
+        fuzzySizes.remove(id);
+    }
+
+    /**
+     * Ищет названия, содержащие подстроку без учёта регистра.
+     *
+     * @param query подстрока
+     * @return идентификаторы найденных названий без определённого порядка
+     */
+    public LongHashSet search(String query) {
+        final String normalized = normalize(query);
+        final LongHashSet found = new LongHashSet();
+
+        if (normalized.length() < N) {
+            titles.forEach((id, title) -> {
+                if (title.contains(normalized)) found.add(id);
+            });
+            return found;
+        }
+
+        final List<LongHashSet> lists = new ArrayList<>();
+        for (long trigram : trigrams(normalized)) {
+            final LongHashSet ids = postings.get(trigram);
+            if (ids == null) return found;
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(LongHashSet::size));
+
+        final LongHashSet shortest = lists.get(0);
+        shortest.forEach(id -> {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) return;
+            }
+            if (titles.get(id).contains(normalized)) found.add(id);
+        });
+        return found;
+    }
+
+    /**
+     * Ищет названия, похожие на запрос с опечатками: коэффициент Дайса по дополненным триграммам слов
+     * запроса и названия должен быть не меньше порога.
+     *
+     * @param query     запрос
+     * @param threshold минимальное сходство от 0 до 1
+     * @return найденные названия с оценкой сходства без определённого порядка
+     */
+    public List<Match> fuzzySearch(String query, double threshold) {
+        final String normalized = normalize(query);
+        final List<Match> matches = new ArrayList<>();
+        final long[] queryTrigrams = paddedTrigrams(normalized);
+        if (queryTrigrams.length == 0) return matches;
+
+        final List<LongHashSet> lists = new ArrayList<>();
+        for (long trigram : queryTrigrams) {
+            final LongHashSet ids = fuzzyPostings.get(trigram);
+            lists.add(ids == null ? EMPTY : ids);
+        }
+        lists.sort(Comparator.comparingInt(LongHashSet::size));
+
+        final int k = queryTrigrams.length;
+        final int minCommon = Math.max(1, (int) Math.ceil(threshold * k / (2 - threshold) - 1e-9));
+        if (minCommon > k) return matches;
+
+        final LongHashSet candidates = new LongHashSet();
+        for (int i = 0; i < k - minCommon + 1; i++) {
+            lists.get(i).forEach(candidates::add);
+        }
+
+        candidates.forEach(id -> {
+            int common = 0;
+            for (LongHashSet ids : lists) {
+                if (ids.contains(id)) common++;
+            }
+            final double score = 2.0 * common / (k + fuzzySizes.get(id));
+            if (score >= threshold - 1e-9) matches.add(new Match(id, score));
+        });
+        return matches;
+    }
+
+    /**
+     * Возвращает кол-во названий в индексе.
+     *
+     * @return кол-во названий
+     */
+    public int size() {
+        return titles.size();
+    }
+
+    /**
+     * Оценивает занимаемую индексом память: массивы posting list'ов, строки названий и накладные расходы
+     * HashMap на запись (узел, упакованный ключ, заголовки объектов).
+     *
+     * @return приблизительный размер в байтах
+     */
+    public long estimateMemoryBytes() {
+        final long entryOverhead = 32 + 16;
+        long bytes = 0;
+        for (LongHashSet ids : postings.values()) {
+            bytes += entryOverhead + 24 + 16 + 8L * ids.capacity();
+        }
+        for (LongHashSet ids : fuzzyPostings.values()) {
+            bytes += entryOverhead + 24 + 16 + 8L * ids.capacity();
+        }
+        bytes += (entryOverhead + 16) * (long) fuzzySizes.size();
+        for (String title : titles.values()) {
+            bytes += entryOverhead + 24 + 16 + 2L * title.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Приводит строку к виду, в котором она хранится в индексе.
+     *
+     * @param str строка
+     * @return строка в нижнем регистре
+     */
+    public static String normalize(String str) {
+        return str.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Раскладывает нормализованную строку на уникальные триграммы, упакованные в long по 16 бит на символ.
+     *
+     * @param normalized нормализованная строка
+     * @return триграммы строки
+     */
+    public static long[] trigrams(String normalized) {
+        final LongHashSet unique = new LongHashSet();
+        for (int i = 0; i + N <= normalized.length(); i++) {
+            unique.add(pack(normalized, i));
+        }
+        return unique.toSortedArray();
+    }
+
+    /**
+     * Раскладывает нормализованную строку на уникальные триграммы слов, дополненных двумя пробелами в начале
+     * и одним в конце. Слова разделяются пробельными символами.
+     *
+     * @param normalized нормализованная строка
+     * @return дополненные триграммы строки
+     */
+    public static long[] paddedTrigrams(String normalized) {
+        final LongHashSet unique = new LongHashSet();
+        for (String word : normalized.split("\\s+")) {
+            if (word.isEmpty()) continue;
+            final String padded = "  " + word + " ";
+            for (int i = 0; i + N <= padded.length(); i++) {
+                unique.add(pack(padded, i));
+            }
+        }
+        return unique.toSortedArray();
+    }
+
+    /**
+     * Результат нечёткого поиска.
+     */
+    @Value
+    public static class Match {
+        long id;
+        double score;
+    }
+
+    private static void removeFrom(Map<Long, LongHashSet> postings, long[] trigrams, long id) {
+        for (long trigram : trigrams) {
+            final LongHashSet ids = postings.get(trigram);
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(trigram);
+        }
+    }
+
+    private static long pack(String str, int from) {
+        return ((long) str.charAt(from) << 32) | ((long) str.charAt(from + 1) << 16) | str.charAt(from + 2);
+    }
+}
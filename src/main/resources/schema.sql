@@ -12,9 +12,15 @@ CREATE TABLE IF NOT EXISTS films
     release_date DATE                  NOT NULL,
     duration     BIGINT                NOT NULL,
     mpa_id       INT                   NULL,
+    likes_count  BIGINT DEFAULT 0      NOT NULL,
     FOREIGN KEY (mpa_id) REFERENCES mpa (mpa_id) ON DELETE SET NULL
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count BIGINT DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+
 CREATE TABLE IF NOT EXISTS genres
 (
     genre_id BIGINT auto_increment NOT NULL PRIMARY KEY,
@@ -30,6 +36,8 @@ CREATE TABLE IF NOT EXISTS film_genres
     PRIMARY KEY (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+
 CREATE TABLE IF NOT EXISTS users
 (
     user_id  BIGINT auto_increment NOT NULL PRIMARY KEY,
@@ -57,15 +65,19 @@ CREATE TABLE IF NOT EXISTS likes
     PRIMARY KEY (user_id, film_id)
 );
 
+CREATE INDEX IF NOT EXISTS likes_film_idx ON likes (film_id, user_id);
+
 CREATE TABLE IF NOT EXISTS recommendations
 (
     user_id BIGINT NOT NULL,
     film_id BIGINT NOT NULL,
+    rank    INT    DEFAULT 0 NOT NULL,
     FOREIGN KEY (user_id) REFERENCES users (user_id) ON DELETE CASCADE,
     FOREIGN KEY (film_id) REFERENCES films (film_id) ON DELETE CASCADE,
     PRIMARY KEY (user_id, film_id)
 );
 
+ALTER TABLE recommendations ADD COLUMN IF NOT EXISTS rank INT DEFAULT 0 NOT NULL;
 
 CREATE TABLE IF NOT EXISTS events
 (
@@ -77,6 +89,7 @@ CREATE TABLE IF NOT EXISTS events
     entity_id       BIGINT      NOT NULL,
     FOREIGN KEY (user_id) REFERENCES users (user_id) ON DELETE CASCADE
 );
+CREATE INDEX IF NOT EXISTS events_type_time_idx ON events (event_type, time_stamp);
 
 CREATE TABLE IF NOT EXISTS review
 (
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -8,14 +10,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import javax.validation.ConstraintViolationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +37,9 @@ public class FilmControllerTest {
     @Autowired
     private UserController userController;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     @Qualifier("databaseFilmStorage")
     private FilmStorage filmStorage;
@@ -55,6 +66,33 @@ public class FilmControllerTest {
         assertEquals(List.of(film1), new ArrayList<>(filmController.getAll()));
     }
 
+    @Test
+    void testGetPage() {
+        final Film film1 = filmController.create(film);
+        final Film film2 = filmController.create(film);
+        final Film film3 = filmController.create(film);
+
+        assertEquals(List.of(film1, film2), new ArrayList<>(filmController.getPage(null, 2)));
+        assertEquals(List.of(film3), new ArrayList<>(filmController.getPage(film2.getId(), 2)));
+        assertEquals(List.of(), new ArrayList<>(filmController.getPage(film3.getId(), 2)));
+    }
+
+    @Test
+    void testGetAllStreaming() throws IOException {
+        final Film film1 = filmController.create(film.toBuilder().genres(Set.of(Genre.builder().id(1).build(),
+                Genre.builder().id(2).build())).build());
+        final Film film2 = filmController.create(film);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.getAllStreaming().getBody().writeTo(out);
+
+        final List<Film> films = objectMapper.readValue(out.toByteArray(), new TypeReference<>() {
+        });
+        assertEquals(List.of(film1, film2), films);
+        assertEquals(Set.of(1, 2), films.get(0).getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        assertNull(films.get(1).getGenres());
+    }
+
     @Test
     void testGetNonExistFilm() {
         final Film film1 = filmController.create(film);
@@ -142,6 +180,7 @@ public class FilmControllerTest {
         final User user1 = userController.create(user);
         filmController.addLike(film2.getId(), user1.getId());
         assertEquals(List.of(film2), filmController.getPopular(1, null, null));
+        assertThrows(ConstraintViolationException.class, () -> filmController.getPopular(-1, null, null));
     }
 
     @Test
@@ -153,6 +192,59 @@ public class FilmControllerTest {
         assertEquals(List.of(film2), filmController.searchFilmByTitle("tERm", "title"));
     }
 
+    @Test
+    void testFuzzySearchFilmByTitle() {
+        final Film film1 = filmController.create(film.toBuilder().name("Matrix").build());
+        final Film film2 = filmController.create(film.toBuilder().name("Terminator").build());
+        assertEquals(List.of(film2), filmController.searchFilmByTitle("termintor", "fuzzy"));
+        assertEquals(List.of(film1), filmController.searchFilmByTitle("matirx", "fuzzy"));
+    }
+
+    @Test
+    void testAutocomplete() {
+        final Film film1 = filmController.create(film.toBuilder().name("Terminator").build());
+        final Film film2 = filmController.create(film.toBuilder().name("Terminator 2").build());
+        final Film film3 = filmController.create(film.toBuilder().name("Matrix").build());
+        final User user1 = userController.create(user);
+        filmController.addLike(film2.getId(), user1.getId());
+
+        assertEquals(List.of(film2, film1), new ArrayList<>(filmController.autocomplete("term", 10)));
+        assertEquals(List.of(film2), new ArrayList<>(filmController.autocomplete("TERM", 1)));
+        assertThrows(ConstraintViolationException.class, () -> filmController.autocomplete("term", -1));
+
+        userController.delete(user1.getId());
+        assertEquals(List.of(film1, film2), new ArrayList<>(filmController.autocomplete("term", 10)));
+    }
+
+    @Test
+    void testImportFilms() throws IOException {
+        final String valid = "{\"name\": \"%s\", \"description\": \"d\", \"releaseDate\": \"1999-03-31\","
+                + " \"duration\": 136, \"mpa\": {\"id\": 4}, \"genres\": [{\"id\": 6}]}";
+        final String ndjson = String.join("\n",
+                String.format(valid, "Matrix"),
+                "",
+                "{not json",
+                "{\"name\": \"Old\", \"description\": \"d\", \"releaseDate\": \"1700-01-01\", \"duration\": 1,"
+                        + " \"mpa\": {\"id\": 1}}",
+                "{\"name\": \"\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", \"duration\": -1,"
+                        + " \"mpa\": {\"id\": 1}}",
+                String.format(valid, "Matrix Reloaded").replace("{\"name", "{\"id\": 100, \"name"),
+                String.format(valid, "Duplicate").replace("{\"name", "{\"id\": 100, \"name"));
+
+        final FilmImportReport report = filmController.importFilms(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(3L, 4L, 5L, 7L), report.getErrors().stream().map(FilmImportReport.LineError::getLine)
+                .collect(Collectors.toList()));
+        assertEquals("duration must be greater than or equal to 0; name must not be blank",
+                report.getErrors().get(2).getMessage());
+        assertEquals("Matrix Reloaded", filmController.get(100L).getName());
+        assertEquals(List.of("Matrix", "Matrix Reloaded"), filmController.searchFilmByTitle("matrix", "title")
+                .stream().map(Film::getName).sorted().collect(Collectors.toList()));
+    }
+
     @Test
     void testSearchFilmByGenreAndYear() {
         final Genre genre = Genre.builder().id(1).title("Comedy").build();
@@ -189,6 +281,74 @@ public class FilmControllerTest {
         assertEquals(1, filmController.getCommonPopularFilms(user1.getId(), user3.getId()).size());
     }
 
+    @Test
+    void testGetCommonFilmsOrderedByPopularity() {
+        final Film film1 = filmController.create(film);
+        final Film film2 = filmController.create(film.toBuilder().name("test2").build());
+        final Film film3 = filmController.create(film.toBuilder().name("test3").build());
+        final User user1 = userController.create(user);
+        final User user2 = userController.create(user.toBuilder().login("yy").email("yyyyy@yyyyy.ru").build());
+        final User user3 = userController.create(user.toBuilder().login("zz").email("zzzzz@zzzzz.ru").build());
+
+        List.of(film1, film2, film3).forEach(x -> {
+            filmController.addLike(x.getId(), user1.getId());
+            filmController.addLike(x.getId(), user2.getId());
+        });
+        filmController.addLike(film3.getId(), user3.getId());
+
+        assertEquals(List.of(film3, film1, film2),
+                new ArrayList<>(filmController.getCommonPopularFilms(user1.getId(), user2.getId())));
+        assertEquals(List.of(film3), new ArrayList<>(filmController.getCommonPopularFilms(user3.getId(), user1.getId())));
+        assertThrows(NoSuchElementException.class, () -> filmController.getCommonPopularFilms(user1.getId(), 100L));
+    }
+
+    @Test
+    void testGetTrending() {
+        final Film film1 = filmController.create(film);
+        final Film film2 = filmController.create(film.toBuilder().name("test2").build());
+        filmController.create(film.toBuilder().name("test3").build());
+        final User user1 = userController.create(user);
+        final User user2 = userController.create(user.toBuilder().login("yy").email("yyyyy@yyyyy.ru").build());
+
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film2.getId(), user1.getId());
+        filmController.addLike(film2.getId(), user2.getId());
+        assertEquals(List.of(film2, film1), new ArrayList<>(filmController.getTrending("24h", 10)));
+
+        filmController.removeLike(film2.getId(), user1.getId());
+        filmController.removeLike(film2.getId(), user2.getId());
+        assertEquals(List.of(film1), new ArrayList<>(filmController.getTrending("1h", 10)));
+        assertThrows(ValidationException.class, () -> filmController.getTrending("30d", 10));
+        assertThrows(ValidationException.class, () -> filmController.getTrending("day", 10));
+        assertThrows(ConstraintViolationException.class, () -> filmController.getTrending("24h", 1001));
+    }
+
+    @Test
+    void testGetSimilarFilms() {
+        final Film film1 = filmController.create(film);
+        final Film film2 = filmController.create(film.toBuilder().name("test2").build());
+        final Film film3 = filmController.create(film.toBuilder().name("test3").build());
+        final User user1 = userController.create(user);
+        final User user2 = userController.create(user.toBuilder().login("yy").email("yyyyy@yyyyy.ru").build());
+
+        filmController.addLike(film1.getId(), user1.getId());
+        filmController.addLike(film2.getId(), user1.getId());
+        filmController.addLike(film1.getId(), user2.getId());
+        filmController.addLike(film3.getId(), user2.getId());
+        filmController.addLike(film2.getId(), user2.getId());
+
+        assertEquals(List.of(film2, film3), filmController.getSimilar(film1.getId(), 10));
+
+        filmController.removeLike(film2.getId(), user2.getId());
+        filmController.removeLike(film2.getId(), user1.getId());
+        assertEquals(List.of(film3), filmController.getSimilar(film1.getId(), 10));
+
+        filmController.addLike(film2.getId(), user2.getId());
+        filmController.delete(film3.getId());
+        assertEquals(List.of(film2), filmController.getSimilar(film1.getId(), 10));
+        assertThrows(ConstraintViolationException.class, () -> filmController.getSimilar(film1.getId(), -1));
+    }
+
     @Test
     void testSearchFilmByGenre() {
         final Genre genre = Genre.builder().id(1).title("Comedy").build();
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.ClassUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Регрессионный тест на N+1: кол-во SQL-запросов на эндпоинт не должно зависеть от размера выборки.
+ * Кэш фильмов, рейтинг популярности и индекс названий в памяти отключены, чтобы считались запросы самого хранилища.
+ */
+@SpringBootTest(properties = {"films.cache.enabled=false", "films.popular.leaderboard.enabled=false",
+        "films.search.index.enabled=false"})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmQueryCountTest {
+    private static final int FILMS_COUNT = 5;
+
+    @Autowired
+    private FilmController filmController;
+
+    @Autowired
+    private UserController userController;
+
+    private final Genre genre = Genre.builder().id(1).title("Комедия").build();
+
+    private final Film film = Film.builder().name("Terminator").description("test").mpa(MpaRating.builder().id(1)
+            .title("G").build()).duration(0).releaseDate(LocalDate.of(1970, 1, 1)).genres(Set.of(genre)).build();
+
+    private final User user = User.builder().login("xx").email("xxxxx@xxxxx.ru")
+            .birthday(LocalDate.of(1970, 1, 1)).build();
+
+    private final List<Film> films = new ArrayList<>();
+    private User user1;
+
+    @BeforeEach
+    void fillFilms() {
+        user1 = userController.create(user);
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            final Film film1 = filmController.create(film);
+            filmController.addLike(film1.getId(), user1.getId());
+            films.add(film1);
+        }
+    }
+
+    @Test
+    void testGetAllStatementsCount() {
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT, filmController.getAll().size())));
+    }
+
+    @Test
+    void testGetStatementsCount() {
+        assertEquals(2, countStatements(() -> filmController.get(films.get(0).getId())));
+    }
+
+    @Test
+    void testGetPopularStatementsCount() {
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.getPopular(10, null, null).size())));
+    }
+
+    @Test
+    void testSearchByGenreAndYearStatementsCount() {
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.getPopular(10, 1, 1970).size())));
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.getPopular(10, 1, null).size())));
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.getPopular(10, null, 1970).size())));
+    }
+
+    @Test
+    void testSearchByTitleStatementsCount() {
+        assertEquals(2, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.searchFilmByTitle("term", "title").size())));
+    }
+
+    @Test
+    void testAutocompleteWithoutStatements() {
+        assertEquals(0, countStatements(() -> assertEquals(films,
+                new ArrayList<>(filmController.autocomplete("term", 10)))));
+    }
+
+    @Test
+    void testImportStatementsCountIndependentOfSize() {
+        final int small = countStatements(() -> importFilms("Small", 2));
+        assertEquals(small, countStatements(() -> importFilms("Large", 6)));
+
+        // фильмы импорта попадают в автодополнение с названиями рейтинга и жанров, как в хранилище
+        final List<Film> completed = new ArrayList<>();
+        assertEquals(0, countStatements(() -> completed.addAll(filmController.autocomplete("large", 10))));
+        assertEquals(6, completed.size());
+        completed.forEach(film -> assertEquals(filmController.get(film.getId()), film));
+    }
+
+    @Test
+    void testGetCommonFilmsStatementsCountIndependentOfSize() {
+        final User user2 = userController.create(user.toBuilder().login("yy").email("yyyyy@yyyyy.ru").build());
+        filmController.addLike(films.get(0).getId(), user2.getId());
+        final int single = countStatements(() -> assertEquals(1,
+                filmController.getCommonPopularFilms(user1.getId(), user2.getId()).size()));
+
+        films.subList(1, FILMS_COUNT).forEach(film1 -> filmController.addLike(film1.getId(), user2.getId()));
+        assertEquals(single, countStatements(() -> assertEquals(FILMS_COUNT,
+                filmController.getCommonPopularFilms(user1.getId(), user2.getId()).size())));
+    }
+
+    private void importFilms(String name, int count) {
+        final StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ndjson.append("{\"name\": \"").append(name).append(' ').append(i).append("\", \"description\": \"d\",")
+                    .append(" \"releaseDate\": \"1999-03-31\", \"duration\": 136, \"mpa\": {\"id\": 4},")
+                    .append(" \"genres\": [{\"id\": 6}]}\n");
+        }
+        try {
+            assertEquals(count, filmController.importFilms(
+                    new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8))).getImported());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int countStatements(Runnable action) {
+        StatementsCounterConfig.STATEMENTS.set(0);
+        action.run();
+        return StatementsCounterConfig.STATEMENTS.get();
+    }
+
+    /**
+     * Оборачивает DataSource в прокси, считающий созданные JDBC-запросы.
+     */
+    @TestConfiguration
+    static class StatementsCounterConfig {
+        static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+        @Bean
+        static BeanPostProcessor statementsCounterPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) return bean;
+
+                    return proxy(bean, (dataSourceProxy, method, args) -> {
+                        final Object result = invoke(bean, method, args);
+                        if (!(result instanceof Connection)) return result;
+
+                        return proxy(result, (connectionProxy, connectionMethod, connectionArgs) -> {
+                            if (connectionMethod.getName().equals("prepareStatement")
+                                    || connectionMethod.getName().equals("createStatement")) {
+                                STATEMENTS.incrementAndGet();
+                            }
+                            return invoke(result, connectionMethod, connectionArgs);
+                        });
+                    });
+                }
+            };
+        }
+
+        private static Object proxy(Object target, InvocationHandler handler) {
+            return Proxy.newProxyInstance(target.getClass().getClassLoader(),
+                    ClassUtils.getAllInterfaces(target), handler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -10,6 +12,8 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import javax.validation.ConstraintViolationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -23,10 +27,13 @@ class UserControllerTest {
     final private UserController userController;
     final private UserStorage userStorage;
 
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    UserControllerTest(UserController userController, UserStorage databaseUserStorage) {
+    UserControllerTest(UserController userController, UserStorage databaseUserStorage, ObjectMapper objectMapper) {
         this.userController = userController;
         this.userStorage = databaseUserStorage;
+        this.objectMapper = objectMapper;
     }
 
     private final User user1 = User.builder().login("test1").email("test1@test.ru").birthday(LocalDate.of(1970, 1, 1)).build();
@@ -48,6 +55,28 @@ class UserControllerTest {
         assertEquals(List.of(user2), new ArrayList<>(userController.getAll()));
     }
 
+    @Test
+    void testGetPage() {
+        final User first = userController.create(user1);
+        final User second = userController.create(user2);
+
+        assertEquals(List.of(first), new ArrayList<>(userController.getPage(null, 1)));
+        assertEquals(List.of(second), new ArrayList<>(userController.getPage(first.getId(), 1)));
+        assertEquals(List.of(), new ArrayList<>(userController.getPage(second.getId(), 1)));
+    }
+
+    @Test
+    void testGetAllStreaming() throws IOException {
+        final User first = userController.create(user1);
+        final User second = userController.create(user2);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userController.getAllStreaming().getBody().writeTo(out);
+
+        assertEquals(List.of(first, second), objectMapper.readValue(out.toByteArray(), new TypeReference<List<User>>() {
+        }));
+    }
+
     @Test
     void testGetNonExistUser() {
         final User user2 = userController.create(user1);
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationScheduler;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Эндпоинт рекомендаций должен отдавать фильмы в порядке ранга, рассчитанного в режиме SCORED.
+ */
+@SpringBootTest(properties = {"recommendations.mode=SCORED", "recommendations.similarity=JACCARD",
+        "recommendations.max-size=2"})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UserRecommendationsOrderTest {
+    @Autowired
+    private FilmController filmController;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private RecommendationScheduler recommendationScheduler;
+
+    @Test
+    void testRecommendationsReturnedInRankOrder() {
+        final List<Long> users = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            users.add(userController.create(User.builder().login("user" + i).email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1970, 1, 1)).build()).getId());
+        }
+        final List<Long> films = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            films.add(filmController.create(Film.builder().name("film" + i).description("test")
+                    .mpa(MpaRating.builder().id(1).title("G").build()).duration(100)
+                    .releaseDate(LocalDate.of(2000, 1, 1)).build()).getId());
+        }
+        // пользователь 1 лайкнул фильмы 1 и 2
+        like(films, users.get(0), 1, 2);
+        // пользователь 2 очень похож: фильмы 1, 2 и 6
+        like(films, users.get(1), 1, 2, 6);
+        // пользователь 3 похож меньше: фильм 1 и фильмы 3, 4, 5
+        like(films, users.get(2), 1, 3, 4, 5);
+        // пользователь 4 без общих лайков
+        like(films, users.get(3), 7);
+        recommendationScheduler.flush();
+
+        final List<Long> recommended = userController.getRecommendations(users.get(0)).stream()
+                .map(Film::getId).collect(Collectors.toList());
+        // фильм 6 от самого похожего пользователя выше фильма 3, хотя его идентификатор больше
+        assertEquals(List.of(films.get(5), films.get(2)), recommended);
+    }
+
+    private void like(List<Long> films, Long userId, int... filmNumbers) {
+        for (int number : filmNumbers) {
+            filmController.addLike(films.get(number - 1), userId);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ошибка слушателя события лайка не должна превращать уже записанный лайк в ошибку для клиента.
+ */
+@SpringBootTest(properties = {"films.likes.ingestion.enabled=true", "films.likes.ingestion.ack=FLUSH"})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeIngestionListenerFailureTest {
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testWrittenLikeAcknowledgedWhenListenerFails() {
+        for (long id = 1; id <= 2; id++) {
+            filmService.addFilm(Film.builder().id(id).name("film" + id).description("test").duration(100)
+                    .mpa(MpaRating.builder().id(1).build()).releaseDate(LocalDate.of(2000, 1, 1)).build());
+        }
+        userService.addUser(User.builder().id(1L).login("user1").name("user1").email("user1@mail.ru")
+                .birthday(LocalDate.of(1970, 1, 1)).build());
+
+        assertDoesNotThrow(() -> filmService.addLikeToFilm(1L, 1L));
+        assertDoesNotThrow(() -> filmService.addLikeToFilm(2L, 1L));
+
+        assertEquals(List.of(1L, 2L), jdbcTemplate.queryForList("SELECT film_id FROM likes ORDER BY film_id",
+                Long.class));
+    }
+
+    @TestConfiguration
+    static class FailingListenerConfig {
+        @EventListener
+        public void handleFilmLikeAdded(FilmLikeAddedEvent event) {
+            if (event.getFilmId() == 1L) throw new IllegalStateException("listener failed");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestionService;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Отложенная запись лайков должна давать те же лайки, счётчики, события и рейтинг, что и синхронная.
+ */
+@SpringBootTest(properties = {"films.likes.ingestion.enabled=true", "films.likes.ingestion.ack=ENQUEUE",
+        "films.likes.ingestion.batch-size=16"})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeIngestionServiceTest {
+    private static final int FILMS_COUNT = 20;
+    private static final int USERS_COUNT = 10;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeIngestionService likeIngestionService;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final LikeStorage likeStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    LikeIngestionServiceTest(FilmService filmService, UserService userService,
+                             LikeIngestionService likeIngestionService,
+                             PopularityLeaderboard popularityLeaderboard,
+                             @Qualifier("databaseFilmStorage") LikeStorage likeStorage,
+                             JdbcTemplate jdbcTemplate) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.likeIngestionService = likeIngestionService;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.likeStorage = likeStorage;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Test
+    void testBufferedLikesMatchDatabase() {
+        final Random random = new Random(1);
+        addFilmsAndUsers();
+
+        final Set<List<Long>> expected = new HashSet<>();
+        int expectedEvents = 0;
+        for (int i = 0; i < 1_000; i++) {
+            final long filmId = 1 + random.nextInt(FILMS_COUNT);
+            final long userId = 1 + random.nextInt(USERS_COUNT);
+            if (random.nextBoolean()) {
+                filmService.addLikeToFilm(filmId, userId);
+                if (expected.add(List.of(filmId, userId))) expectedEvents++;
+            } else {
+                filmService.removeLikeFromFilm(filmId, userId);
+                if (expected.remove(List.of(filmId, userId))) expectedEvents++;
+            }
+            if (i % 97 == 0) likeIngestionService.flush();
+        }
+        likeIngestionService.flush();
+
+        assertEquals(expected, new HashSet<>(jdbcTemplate.query("SELECT film_id, user_id FROM likes",
+                (rs, rowNum) -> List.of(rs.getLong("film_id"), rs.getLong("user_id")))));
+        assertEquals(0, countMismatchedCounters());
+        assertEquals(expectedEvents, countLikeEvents());
+        assertEquals(likeStorage.getPopularFilms(FILMS_COUNT).stream().map(Film::getId).collect(Collectors.toList()),
+                popularityLeaderboard.getTop(FILMS_COUNT, null, null));
+    }
+
+    @Test
+    void testRepeatedLikesAreCountedOnce() {
+        addFilmsAndUsers();
+
+        for (int i = 0; i < 5; i++) {
+            filmService.addLikeToFilm(3L, 1L);
+        }
+        filmService.addLikeToFilm(3L, 2L);
+        filmService.removeLikeFromFilm(3L, 2L);
+        filmService.removeLikeFromFilm(3L, 4L);
+        likeIngestionService.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = 3", Integer.class));
+        assertEquals(0, countMismatchedCounters());
+        assertEquals(3, countLikeEvents());
+        assertEquals(List.of(3L), popularityLeaderboard.getTop(1, null, null));
+    }
+
+    private int countMismatchedCounters() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films f WHERE f.likes_count <> " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)", Integer.class);
+    }
+
+    private int countLikeEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE event_type = 'LIKE'", Integer.class);
+    }
+
+    private void addFilmsAndUsers() {
+        for (long id = 1; id <= FILMS_COUNT; id++) {
+            filmService.addFilm(Film.builder().id(id).name("film" + id).description("test").duration(100)
+                    .mpa(MpaRating.builder().id(1).build()).releaseDate(LocalDate.of(2000, 1, 1)).build());
+        }
+        for (long id = 1; id <= USERS_COUNT; id++) {
+            userService.addUser(User.builder().id(id).login("user" + id).name("user" + id)
+                    .email("user" + id + "@mail.ru").birthday(LocalDate.of(1970, 1, 1)).build());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeMembershipFilter;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeMembershipFilterTest {
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LikeMembershipFilter likeMembershipFilter;
+
+    @Test
+    void testRemovedFilmAndUserLikesForgotten() {
+        for (long id = 1; id <= 2; id++) {
+            filmService.addFilm(Film.builder().id(id).name("film" + id).description("test").duration(100)
+                    .mpa(MpaRating.builder().id(1).build()).releaseDate(LocalDate.of(2000, 1, 1)).build());
+            userService.addUser(User.builder().id(id).login("user" + id).name("user" + id)
+                    .email("user" + id + "@mail.ru").birthday(LocalDate.of(1970, 1, 1)).build());
+        }
+        filmService.addLikeToFilm(1L, 1L);
+        filmService.addLikeToFilm(1L, 2L);
+        filmService.addLikeToFilm(2L, 1L);
+        filmService.addLikeToFilm(2L, 2L);
+
+        filmService.removeFilm(1L);
+        assertFalse(likeMembershipFilter.isLiked(1L, 1L));
+        assertFalse(likeMembershipFilter.isLiked(1L, 2L));
+        assertTrue(likeMembershipFilter.isLiked(2L, 1L));
+
+        userService.removeUser(2L);
+        assertFalse(likeMembershipFilter.isLiked(2L, 2L));
+        assertTrue(likeMembershipFilter.isLiked(2L, 1L));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Рейтинг популярности в памяти должен совпадать с сортировкой в базе после любых изменений.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class PopularityLeaderboardTest {
+    private static final int FILMS_COUNT = 30;
+    private static final int USERS_COUNT = 10;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+
+    @Autowired
+    PopularityLeaderboardTest(FilmService filmService, UserService userService,
+                              PopularityLeaderboard popularityLeaderboard,
+                              @Qualifier("databaseFilmStorage") FilmStorage filmStorage,
+                              @Qualifier("databaseFilmStorage") LikeStorage likeStorage) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.filmStorage = filmStorage;
+        this.likeStorage = likeStorage;
+    }
+
+    @Test
+    void testLeaderboardMatchesDatabase() {
+        final Random random = new Random(1);
+        for (long id = 1; id <= FILMS_COUNT; id++) {
+            filmService.addFilm(randomFilm(id, random));
+        }
+        for (long id = 1; id <= USERS_COUNT; id++) {
+            userService.addUser(User.builder().id(id).login("user" + id).name("user" + id)
+                    .email("user" + id + "@mail.ru").birthday(LocalDate.of(1970, 1, 1)).build());
+        }
+        for (long userId = 1; userId <= USERS_COUNT; userId++) {
+            for (long filmId = 1; filmId <= FILMS_COUNT; filmId++) {
+                if (random.nextInt(3) == 0) filmService.addLikeToFilm(filmId, userId);
+            }
+        }
+        assertSameRanking();
+
+        for (long filmId = 1; filmId <= FILMS_COUNT; filmId += 3) {
+            filmService.removeLikeFromFilm(filmId, 1L);
+        }
+        filmService.updateFilm(randomFilm(2L, random));
+        filmService.removeFilm(5L);
+        userService.removeUser(2L);
+        assertSameRanking();
+    }
+
+    private void assertSameRanking() {
+        assertEquals(ids(likeStorage.getPopularFilms(FILMS_COUNT)), popularityLeaderboard.getTop(FILMS_COUNT, null, null));
+        for (int genreId = 1; genreId <= 3; genreId++) {
+            assertEquals(ids(filmStorage.searchFilmByGenreAndYear(FILMS_COUNT, genreId, null)),
+                    popularityLeaderboard.getTop(FILMS_COUNT, genreId, null));
+            for (int year = 2000; year <= 2002; year++) {
+                assertEquals(ids(filmStorage.searchFilmByGenreAndYear(FILMS_COUNT, genreId, year)),
+                        popularityLeaderboard.getTop(FILMS_COUNT, genreId, year));
+            }
+        }
+        for (int year = 2000; year <= 2002; year++) {
+            assertEquals(ids(filmStorage.searchFilmByGenreAndYear(FILMS_COUNT, null, year)),
+                    popularityLeaderboard.getTop(FILMS_COUNT, null, year));
+        }
+    }
+
+    private static Film randomFilm(Long id, Random random) {
+        final Set<Genre> genres = random.ints(random.nextInt(3), 1, 4).boxed()
+                .map(genreId -> Genre.builder().id(genreId).build()).collect(Collectors.toSet());
+        return Film.builder().id(id).name("film" + id).description("test").duration(100)
+                .mpa(MpaRating.builder().id(1).build())
+                .releaseDate(LocalDate.of(2000 + random.nextInt(3), 1, 1))
+                .genres(genres.isEmpty() ? null : genres).build();
+    }
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение последовательного и параллельного расчёта рекомендаций между собой и с исходной наивной
+ * реализацией на сгенерированных данных. Бенчмарки запускаются профилем: mvn test -P benchmark
+ */
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+class RecommendationBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+    private static final int BASELINE_ROUNDS = 2;
+
+    private final RecommendationService recommendationService;
+
+    @Autowired
+    RecommendationBenchmarkTest(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+
+    @Test
+    void testParallelResultEqualsSequential() {
+        final LikeMatrix likeMatrix = generateLikeMatrix(2_000, 500, 20, 1);
+
+        final Map<Long, Set<Long>> sequential = recommendationService.computeRecommendations(likeMatrix, 5, false);
+        final Map<Long, Set<Long>> parallel = recommendationService.computeRecommendations(likeMatrix, 5, true);
+
+        assertEquals(sequential, parallel);
+        assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkParallelCompute() {
+        final LikeMatrix likeMatrix = generateLikeMatrix(50_000, 10_000, 40, 2);
+
+        final long sequential = measure(likeMatrix, false);
+        final long parallel = measure(likeMatrix, true);
+
+        log.info("RECOMMENDATIONS {} USERS, {} CORES: SEQUENTIAL {} MS, PARALLEL {} MS, SPEEDUP {}x",
+                likeMatrix.getUsersCount(), Runtime.getRuntime().availableProcessors(), sequential, parallel,
+                String.format("%.2f", (double) sequential / parallel));
+    }
+
+    /**
+     * Исходная реализация квадратична, поэтому сравнение с ней идёт на меньшем наборе пользователей.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstBaseline() {
+        final LikeMatrix likeMatrix = generateLikeMatrix(3_000, 1_000, 40, 3);
+        final Map<Long, Set<Long>> usersLikes = toUsersLikes(likeMatrix);
+
+        final long baseline = measure(() -> {
+            final long start = System.nanoTime();
+            baselineCompute(usersLikes, 5);
+            return System.nanoTime() - start;
+        }, 1, BASELINE_ROUNDS);
+        final long sequential = measure(likeMatrix, false);
+        final long parallel = measure(likeMatrix, true);
+
+        log.info("RECOMMENDATIONS {} USERS, {} CORES: BASELINE {} MS, SEQUENTIAL {} MS ({}x), PARALLEL {} MS ({}x)",
+                likeMatrix.getUsersCount(), Runtime.getRuntime().availableProcessors(), baseline,
+                sequential, String.format("%.1f", (double) baseline / sequential),
+                parallel, String.format("%.1f", (double) baseline / parallel));
+    }
+
+    private long measure(LikeMatrix likeMatrix, boolean parallel) {
+        return measure(() -> {
+            final long start = System.nanoTime();
+            recommendationService.computeRecommendations(likeMatrix, 5, parallel);
+            return System.nanoTime() - start;
+        }, WARMUP_ROUNDS, ROUNDS);
+    }
+
+    /**
+     * @param run          прогон, возвращающий своё время в наносекундах
+     * @param warmupRounds кол-во прогонов прогрева
+     * @param rounds       кол-во замеряемых прогонов
+     * @return лучшее время в миллисекундах
+     */
+    private static long measure(LongSupplier run, int warmupRounds, int rounds) {
+        for (int i = 0; i < warmupRounds; i++) {
+            run.getAsLong();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            best = Math.min(best, run.getAsLong() / 1_000_000);
+        }
+        return best;
+    }
+
+    /**
+     * Исходный расчёт RecommendationService.compute до перехода на матрицу лайков: попарное пересечение
+     * множеств лайков всех пользователей, без сохранения результата. Лайки копируются, так как исходный
+     * алгоритм изменяет множества похожих пользователей.
+     */
+    static Map<Long, Set<Long>> baselineCompute(Map<Long, Set<Long>> likes, int maxSizeOfRecommendations) {
+        final Map<Long, Set<Long>> usersLikes = new HashMap<>();
+        likes.forEach((userId, films) -> usersLikes.put(userId, new HashSet<>(films)));
+        final Map<Long, Set<Long>> similarUsers = new HashMap<>();
+
+        for (Map.Entry<Long, Set<Long>> i : usersLikes.entrySet()) {
+            for (Map.Entry<Long, Set<Long>> j : usersLikes.entrySet()) {
+                if (Objects.equals(i.getKey(), j.getKey())) continue;
+
+                final Set<Long> intersect = new HashSet<>(i.getValue());
+                intersect.retainAll(j.getValue());
+
+                if (intersect.size() > 0 && j.getValue().size() > i.getValue().size()) {
+                    similarUsers.computeIfAbsent(i.getKey(), k -> new HashSet<>()).add(j.getKey());
+                }
+            }
+        }
+
+        final Map<Long, Set<Long>> usersRecommendations = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> i : similarUsers.entrySet()) {
+            final Set<Long> currentUserFilms = usersLikes.get(i.getKey());
+            final Set<Long> recommendations = new HashSet<>();
+            for (Long userId : i.getValue()) {
+                if (recommendations.size() > maxSizeOfRecommendations) break;
+                final Set<Long> userFilms = usersLikes.get(userId);
+                userFilms.removeAll(currentUserFilms);
+                recommendations.addAll(userFilms);
+            }
+            usersRecommendations.put(i.getKey(), recommendations);
+        }
+        return usersRecommendations;
+    }
+
+    private static Map<Long, Set<Long>> toUsersLikes(LikeMatrix likeMatrix) {
+        final Map<Long, Set<Long>> usersLikes = new HashMap<>();
+        for (int user = 0; user < likeMatrix.getUsersCount(); user++) {
+            final Set<Long> films = new HashSet<>();
+            likeMatrix.getUserFilms(user).forEach((IntConsumer) film ->
+                    films.add(likeMatrix.getFilmId(film)));
+            usersLikes.put(likeMatrix.getUserId(user), films);
+        }
+        return usersLikes;
+    }
+
+    /**
+     * Генерирует лайки со степенным распределением популярности фильмов: немногие фильмы собирают
+     * большую часть лайков, как в реальных данных.
+     */
+    static LikeMatrix generateLikeMatrix(int usersCount, int filmsCount, int maxLikesPerUser, long seed) {
+        final Random random = new Random(seed);
+        final LikeMatrix.Builder builder = LikeMatrix.builder();
+
+        for (long userId = 1; userId <= usersCount; userId++) {
+            final int likesCount = 1 + random.nextInt(maxLikesPerUser);
+            for (int i = 0; i < likesCount; i++) {
+                final long filmId = 1 + (long) (filmsCount * Math.pow(random.nextDouble(), 3));
+                builder.add(userId, filmId);
+            }
+        }
+
+        return builder.build();
+    }
+}
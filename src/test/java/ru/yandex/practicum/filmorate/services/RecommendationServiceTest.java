@@ -4,10 +4,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationScheduler;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -19,16 +21,20 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class RecommendationServiceTest {
     private final FilmService filmService;
     private final UserService userService;
     private final RecommendationService recommendationService;
+    private final RecommendationScheduler recommendationScheduler;
 
     @Autowired
-    RecommendationServiceTest(FilmService filmService, UserService userService, RecommendationService recommendationService) {
+    RecommendationServiceTest(FilmService filmService, UserService userService, RecommendationService recommendationService,
+                              RecommendationScheduler recommendationScheduler) {
         this.filmService = filmService;
         this.userService = userService;
         this.recommendationService = recommendationService;
+        this.recommendationScheduler = recommendationScheduler;
     }
 
     private static final List<Film> films = List.of(
@@ -61,10 +67,29 @@ class RecommendationServiceTest {
         filmService.addLikeToFilm(4L, 1L);
 
         filmService.addLikeToFilm(0L, 2L);
+        recommendationScheduler.flush();
 
         assertEquals(List.of(films.get(1), films.get(2)), recommendationService.getFilmRecommendationsByUserId(2L));
     }
 
+    @Test
+    void testRecommendationsUpdatedAfterLikeRemoved() {
+        films.forEach(filmService::addFilm);
+        users.forEach(userService::addUser);
+
+        filmService.addLikeToFilm(0L, 0L);
+        filmService.addLikeToFilm(1L, 0L);
+        filmService.addLikeToFilm(0L, 2L);
+        recommendationScheduler.flush();
+
+        assertEquals(List.of(films.get(1)), recommendationService.getFilmRecommendationsByUserId(2L));
+
+        filmService.removeLikeFromFilm(0L, 0L);
+        recommendationScheduler.flush();
+
+        assertEquals(List.of(), recommendationService.getFilmRecommendationsByUserId(2L));
+    }
+
     private static Film genNewFilm(Long id, String title) {
         return Film.builder().id(id).name(title).description("").mpa(MpaRating.builder().id(1).title("G").build())
                 .duration(0).releaseDate(LocalDate.of(1970, 1, 1)).build();
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.utils.LikeMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"recommendations.mode=SCORED", "recommendations.similarity=JACCARD"})
+@AutoConfigureTestDatabase
+class ScoredRecommendationServiceTest {
+    private final RecommendationService recommendationService;
+
+    @Autowired
+    ScoredRecommendationServiceTest(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+
+    @Test
+    void testFilmsRankedBySimilarityOfNeighbours() {
+        final LikeMatrix likeMatrix = LikeMatrix.builder()
+                // пользователь 1 лайкнул фильмы 1 и 2
+                .add(1L, 1L).add(1L, 2L)
+                // пользователь 2 очень похож: фильмы 1, 2 и 3
+                .add(2L, 1L).add(2L, 2L).add(2L, 3L)
+                // пользователь 3 похож меньше: фильм 1 и фильмы 4, 5, 6
+                .add(3L, 1L).add(3L, 4L).add(3L, 5L).add(3L, 6L)
+                // пользователь 4 без общих лайков
+                .add(4L, 7L)
+                .build();
+
+        final Map<Long, Set<Long>> recommendations = recommendationService.computeRecommendations(likeMatrix, 2, false);
+
+        assertEquals(List.of(3L, 4L), new ArrayList<>(recommendations.get(1L)));
+        assertEquals(Set.of(), recommendations.get(4L));
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.events.FilmLikeAddedEvent;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TrendingServiceTest {
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Test
+    void testLikeCountedAtItsOwnTime() {
+        final long now = System.currentTimeMillis();
+        // при отложенной записи событие приходит позже лайка, но лайк должен попасть в корзину своего времени
+        publisher.publishEvent(new FilmLikeAddedEvent(this, 1L, 1L, now - TimeUnit.HOURS.toMillis(3)));
+        publisher.publishEvent(new FilmLikeAddedEvent(this, 2L, 1L, now));
+
+        assertEquals(List.of(2L), trendingService.getTrending("1h", 10));
+        assertEquals(List.of(2L, 1L), trendingService.getTrending("24h", 10));
+    }
+}
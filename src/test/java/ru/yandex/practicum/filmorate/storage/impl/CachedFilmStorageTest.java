@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedFilmStorageTest {
+    private final InMemoryFilmStorage inMemoryFilmStorage = new InMemoryFilmStorage();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Film film = Film.builder().id(1L).name("test").description("test").mpa(MpaRating.builder().id(1)
+            .title("G").build()).duration(0).releaseDate(LocalDate.of(1970, 1, 1)).build();
+
+    @Test
+    void testCachesOnReadAndInvalidatesOnWrite() {
+        final CachedFilmStorage storage = new CachedFilmStorage(inMemoryFilmStorage, meterRegistry, true, 10);
+        storage.add(film);
+
+        assertEquals(film, storage.get(1L));
+        assertEquals(film, storage.get(1L));
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+
+        final Film updated = film.toBuilder().name("updated").build();
+        storage.update(updated);
+        assertEquals(updated, storage.get(1L));
+
+        storage.remove(updated);
+        assertNull(storage.get(1L));
+        assertEquals(1, gets("hit"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        final CachedFilmStorage storage = new CachedFilmStorage(inMemoryFilmStorage, meterRegistry, true, 2);
+        for (long id = 1; id <= 3; id++) {
+            storage.add(film.toBuilder().id(id).build());
+        }
+
+        storage.getAll(List.of(1L, 2L));
+        storage.get(1L);
+        storage.get(3L);
+        assertEquals(1, meterRegistry.get("cache.evictions").counter().count());
+
+        storage.get(1L);
+        storage.get(2L);
+        assertEquals(2, gets("hit"));
+        assertEquals(4, gets("miss"));
+    }
+
+    @Test
+    void testDisabledCacheDelegates() {
+        final CachedFilmStorage storage = new CachedFilmStorage(inMemoryFilmStorage, meterRegistry, false, 10);
+        storage.add(film);
+        inMemoryFilmStorage.remove(film);
+
+        assertNull(storage.get(1L));
+        assertEquals(0, gets("hit") + gets("miss"));
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("result", result).counter().count();
+    }
+}
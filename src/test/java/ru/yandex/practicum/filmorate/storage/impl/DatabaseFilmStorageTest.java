@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.storage.impl.DatabaseFilmStorage.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DatabaseFilmStorageTest {
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.[\\w.]+ \\*/");
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private DatabaseFilmStorage databaseFilmStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final Film film = Film.builder().id(1L).name("test").description("test").mpa(MpaRating.builder().id(1)
+            .title("G").build()).duration(0).releaseDate(LocalDate.of(1970, 1, 1)).build();
+
+    private final User user = User.builder().id(1L).login("xx").name("xx").email("xxxxx@xxxxx.ru")
+            .birthday(LocalDate.of(1970, 1, 1)).build();
+
+    @Test
+    void testLikesCountFollowsLikes() {
+        filmService.addFilm(film);
+        userService.addUser(user);
+        userService.addUser(user.toBuilder().id(2L).login("yy").email("yyyyy@yyyyy.ru").build());
+
+        filmService.addLikeToFilm(1L, 1L);
+        filmService.addLikeToFilm(1L, 2L);
+        assertEquals(2, getLikesCount(1L));
+
+        filmService.removeLikeFromFilm(1L, 1L);
+        filmService.removeLikeFromFilm(1L, 1L);
+        assertEquals(1, getLikesCount(1L));
+
+        userService.removeUser(2L);
+        assertEquals(0, getLikesCount(1L));
+    }
+
+    @Test
+    void testLikesAreIdempotent() {
+        filmService.addFilm(film);
+        userService.addUser(user);
+        final Like like = Like.builder().film(film).user(user).build();
+
+        assertTrue(databaseFilmStorage.save(like));
+        assertFalse(databaseFilmStorage.save(like));
+        assertEquals(1, getLikesCount(1L));
+        assertTrue(databaseFilmStorage.delete(like));
+        assertFalse(databaseFilmStorage.delete(like));
+        assertEquals(0, getLikesCount(1L));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE event_type = 'LIKE'",
+                Integer.class));
+
+        // повтор через сервис отсекается фильтром лайков и тоже ничего не меняет
+        filmService.addLikeToFilm(1L, 1L);
+        filmService.addLikeToFilm(1L, 1L);
+        filmService.removeLikeFromFilm(1L, 1L);
+        filmService.removeLikeFromFilm(1L, 1L);
+        assertEquals(0, getLikesCount(1L));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE event_type = 'LIKE'",
+                Integer.class));
+    }
+
+    @Test
+    void testRecountLikesFixesDrift() {
+        filmService.addFilm(film);
+        userService.addUser(user);
+        filmService.addLikeToFilm(1L, 1L);
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE film_id = 1");
+
+        assertEquals(1, databaseFilmStorage.recountLikes());
+        assertEquals(1, getLikesCount(1L));
+        assertEquals(0, databaseFilmStorage.recountLikes());
+    }
+
+    @Test
+    void testUpdateWritesOnlyChangedGenres() {
+        databaseFilmStorage.add(film.toBuilder().genres(Set.of(genre(1), genre(2))).build());
+        assertEquals(List.of(1, 2), getGenresIds(1L));
+
+        databaseFilmStorage.update(film.toBuilder().genres(Set.of(genre(2), genre(3))).build());
+        assertEquals(List.of(2, 3), getGenresIds(1L));
+
+        databaseFilmStorage.update(film);
+        assertEquals(List.of(), getGenresIds(1L));
+    }
+
+    @Test
+    void testKeyedQueriesUseIndexes() {
+        filmService.addFilm(film);
+        userService.addUser(user);
+        filmService.addLikeToFilm(1L, 1L);
+
+        final LocalDate from = LocalDate.of(1970, 1, 1);
+        final LocalDate to = LocalDate.of(1971, 1, 1);
+        assertIndexed(SQL_GET_FILM, 1L);
+        assertIndexed(SQL_GET_FILMS_PAGE, 0L, 10);
+        // популярные без фильтра читают первые N строк индекса films_likes_count_idx, уже упорядоченного как нужно
+        final String popularPlan = jdbcTemplate.queryForObject("EXPLAIN " + SQL_POPULAR, String.class, 10);
+        assertTrue(popularPlan.contains("FILMS_LIKES_COUNT_IDX") && popularPlan.contains("/* index sorted */"),
+                popularPlan);
+        assertIndexed(SQL_COMMON_FILMS, 2L, 1L);
+        assertIndexed(SQL_SEARCH_GENRE, 1, 10);
+        assertIndexed(SQL_SEARCH_YEAR, from, to, 10);
+        assertIndexed(SQL_SEARCH_GENRE_YEAR, 1, from, to, 10);
+        assertIndexed(SQL_INCREMENT_LIKES_COUNT, 1, 1L);
+
+        final Map<String, List<Long>> ids = Map.of("ids", List.of(1L, 2L));
+        assertIndexed(SQL_GET_FILMS_BY_IDS, ids);
+        assertIndexed(SQL_GET_FILMS_GENRES_BY_IDS, ids);
+        assertIndexed(SQL_LIKES_BY_USERS, ids);
+        assertIndexed(SQL_USERS_BY_FILMS, ids);
+        // SQL_SEARCH_TITLE (ILIKE '%...%') не проверяется: индексом не обслуживается, поиск идёт через TitleSearchService
+    }
+
+    private void assertIndexed(String sql, Object... args) {
+        assertNoFullScan(jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args));
+    }
+
+    private void assertIndexed(String sql, Map<String, ?> args) {
+        assertNoFullScan(namedParameterJdbcTemplate.queryForObject("EXPLAIN " + sql, args, String.class));
+    }
+
+    /**
+     * H2 помечает доступ к таблице комментарием с индексом и условием поиска по нему.
+     * Комментарий без условия - это полный обход таблицы (tableScan) или индекса.
+     */
+    private static void assertNoFullScan(String plan) {
+        assertFalse(FULL_SCAN.matcher(plan).find(), plan);
+    }
+
+    private static Genre genre(int id) {
+        return Genre.builder().id(id).build();
+    }
+
+    private List<Integer> getGenresIds(Long filmId) {
+        return jdbcTemplate.queryForList("SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id",
+                Integer.class, filmId);
+    }
+
+    private long getLikesCount(Long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Long.class, filmId);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Recommendation;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static ru.yandex.practicum.filmorate.storage.impl.DatabaseRecommendationStorage.CHUNK_SIZE;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DatabaseRecommendationStorageTest {
+    private static final int USERS_COUNT = CHUNK_SIZE + 5;
+
+    @Autowired
+    private DatabaseRecommendationStorage databaseRecommendationStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSaveAllWritesOnlyDifferenceAcrossChunks() {
+        addUsersAndFilms();
+        final List<Recommendation> initial = new ArrayList<>();
+        for (long userId = 1; userId <= USERS_COUNT; userId++) {
+            initial.add(recommendation(userId, 1L, 2L));
+        }
+        databaseRecommendationStorage.saveAll(initial);
+        final Map<List<Long>, Long> initialRows = getRowsIds();
+        assertEquals(2 * USERS_COUNT, initialRows.size());
+
+        // последний пользователь не передаётся, предпоследний остаётся без рекомендаций
+        final List<Recommendation> updated = new ArrayList<>();
+        for (long userId = 1; userId <= USERS_COUNT - 2; userId++) {
+            updated.add(recommendation(userId, 1L, 3L));
+        }
+        updated.add(recommendation(USERS_COUNT - 1L));
+        databaseRecommendationStorage.saveAll(updated);
+
+        final Map<List<Long>, Long> expected = new HashMap<>();
+        for (long userId = 1; userId <= USERS_COUNT - 2; userId++) {
+            expected.put(List.of(userId, 1L), initialRows.get(List.of(userId, 1L)));
+        }
+        expected.put(List.of((long) USERS_COUNT, 1L), initialRows.get(List.of((long) USERS_COUNT, 1L)));
+        expected.put(List.of((long) USERS_COUNT, 2L), initialRows.get(List.of((long) USERS_COUNT, 2L)));
+
+        final Map<List<Long>, Long> rows = getRowsIds();
+        for (long userId = 1; userId <= USERS_COUNT - 2; userId++) {
+            // новые строки получают новые _ROWID_, поэтому сравниваются только наличием
+            assertNotNull(rows.remove(List.of(userId, 3L)), "inserted for " + userId);
+        }
+        // у неизменившихся строк _ROWID_ прежний - их не удаляли и не вставляли заново
+        assertEquals(expected, rows);
+        assertEquals(Set.of(1L, 3L), databaseRecommendationStorage.getRecommendationByUserId(CHUNK_SIZE + 1L)
+                .getFilmsIds());
+    }
+
+    private Map<List<Long>, Long> getRowsIds() {
+        final Map<List<Long>, Long> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT _ROWID_ AS row_id, user_id, film_id FROM recommendations", rs -> {
+            rows.put(List.of(rs.getLong("user_id"), rs.getLong("film_id")), rs.getLong("row_id"));
+        });
+        return rows;
+    }
+
+    private void addUsersAndFilms() {
+        final List<Object[]> users = new ArrayList<>();
+        for (long userId = 1; userId <= USERS_COUNT; userId++) {
+            users.add(new Object[]{userId, "user" + userId + "@mail.ru", "user" + userId, "user" + userId,
+                    LocalDate.of(1970, 1, 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                users);
+        for (long filmId = 1; filmId <= 3; filmId++) {
+            jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) " +
+                    "VALUES (?, ?, 'test', ?, 100, 1)", filmId, "film" + filmId, LocalDate.of(2000, 1, 1));
+        }
+    }
+
+    private static Recommendation recommendation(Long userId, Long... filmsIds) {
+        return Recommendation.builder().whomId(userId).filmsIds(new LinkedHashSet<>(List.of(filmsIds))).build();
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmUserKeyTest {
+    @Test
+    void testPackAndUnpack() {
+        final long[][] pairs = {{0, 0}, {1, 2}, {0xFFFF_FFFFL, 0}, {0, 0xFFFF_FFFFL}, {0xFFFF_FFFFL, 0xFFFF_FFFFL}};
+        for (long[] pair : pairs) {
+            assertTrue(FilmUserKey.fits(pair[0], pair[1]));
+            final long key = FilmUserKey.pack(pair[0], pair[1]);
+            assertEquals(pair[0], FilmUserKey.filmId(key));
+            assertEquals(pair[1], FilmUserKey.userId(key));
+        }
+    }
+
+    @Test
+    void testDoesNotFitOutOfRangeIds() {
+        assertFalse(FilmUserKey.fits(-1, 1));
+        assertFalse(FilmUserKey.fits(1, -1));
+        assertFalse(FilmUserKey.fits(0x1_0000_0000L, 1));
+        assertFalse(FilmUserKey.fits(1, 0x1_0000_0000L));
+    }
+}
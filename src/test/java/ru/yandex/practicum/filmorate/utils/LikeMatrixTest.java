@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeMatrixTest {
+    private final LikeMatrix likeMatrix = LikeMatrix.builder()
+            .add(10L, 100L).add(10L, 200L).add(10L, 300L)
+            .add(20L, 200L).add(20L, 300L)
+            .add(30L, 400L)
+            .add(10L, 100L)
+            .build();
+
+    @Test
+    void testDenseIndexesFollowIdsOrder() {
+        assertEquals(3, likeMatrix.getUsersCount());
+        assertEquals(4, likeMatrix.getFilmsCount());
+        assertEquals(0, likeMatrix.indexOfUser(10L));
+        assertEquals(2, likeMatrix.indexOfUser(30L));
+        assertEquals(-1, likeMatrix.indexOfUser(40L));
+        assertEquals(400L, likeMatrix.getFilmId(likeMatrix.indexOfFilm(400L)));
+    }
+
+    @Test
+    void testLikesCounts() {
+        assertEquals(3, likeMatrix.getLikesCount(likeMatrix.indexOfUser(10L)));
+        assertEquals(2, likeMatrix.getCommonLikesCount(likeMatrix.indexOfUser(10L), likeMatrix.indexOfUser(20L)));
+        assertEquals(0, likeMatrix.getCommonLikesCount(likeMatrix.indexOfUser(10L), likeMatrix.indexOfUser(30L)));
+    }
+
+    @Test
+    void testCoLikers() {
+        final int user = likeMatrix.indexOfUser(20L);
+        assertArrayEquals(new int[]{likeMatrix.indexOfUser(10L), user}, likeMatrix.getCoLikers(user).toArray());
+    }
+}
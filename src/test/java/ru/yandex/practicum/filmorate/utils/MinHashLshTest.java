@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка полноты MinHash/LSH и сравнение с точным поиском соседей.
+ * Бенчмарк запускается профилем: mvn test -P benchmark
+ */
+@Slf4j
+class MinHashLshTest {
+    private static final int NEIGHBOURS = 10;
+
+    @Test
+    void testFindsSimilarUsers() {
+        // 200 групп по 10 пользователей, внутри группы общие 18 из 20 фильмов
+        final LikeMatrix likeMatrix = generateClusteredMatrix(200, 10, 20, 18, 1);
+        final MinHashLsh lsh = MinHashLsh.build(likeMatrix, 20, 3, 42);
+
+        final double recall = recall(likeMatrix, lsh, 0.5);
+        log.info("LSH RECALL FOR PAIRS WITH JACCARD >= 0.5: {}", recall);
+        assertTrue(recall > 0.95);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstExactNeighbours() {
+        final LikeMatrix likeMatrix = generateClusteredMatrix(5_000, 10, 30, 20, 2);
+
+        for (int[] params : new int[][]{{10, 2}, {20, 3}, {30, 4}, {50, 5}}) {
+            final long lshStart = System.nanoTime();
+            final MinHashLsh lsh = MinHashLsh.build(likeMatrix, params[0], params[1], 42);
+            long lshCandidates = 0;
+            for (int user = 0; user < likeMatrix.getUsersCount(); user++) {
+                lshCandidates += topNeighbours(likeMatrix, user, lsh.getCandidates(user)).getCardinality();
+            }
+            final long lshMs = (System.nanoTime() - lshStart) / 1_000_000;
+
+            final long exactStart = System.nanoTime();
+            long exactCandidates = 0;
+            for (int user = 0; user < likeMatrix.getUsersCount(); user++) {
+                exactCandidates += topNeighbours(likeMatrix, user, likeMatrix.getCoLikers(user)).getCardinality();
+            }
+            final long exactMs = (System.nanoTime() - exactStart) / 1_000_000;
+
+            log.info("LSH bands={} rows={}: {} MS, EXACT: {} MS, NEIGHBOURS FOUND {} OF {}, RECALL@0.3 {}",
+                    params[0], params[1], lshMs, exactMs, lshCandidates, exactCandidates,
+                    recall(likeMatrix, lsh, 0.3));
+        }
+    }
+
+    private static double recall(LikeMatrix likeMatrix, MinHashLsh lsh, double threshold) {
+        long found = 0;
+        long total = 0;
+        for (int user = 0; user < likeMatrix.getUsersCount(); user++) {
+            final RoaringBitmap candidates = lsh.getCandidates(user);
+            for (int other : likeMatrix.getCoLikers(user)) {
+                if (other == user || jaccard(likeMatrix, user, other) < threshold) continue;
+                total++;
+                if (candidates.contains(other)) found++;
+            }
+        }
+        return total == 0 ? 1 : (double) found / total;
+    }
+
+    private static RoaringBitmap topNeighbours(LikeMatrix likeMatrix, int user, RoaringBitmap candidates) {
+        final TopKHeap heap = new TopKHeap(NEIGHBOURS);
+        for (int other : candidates) {
+            if (other != user) heap.offer(other, jaccard(likeMatrix, user, other));
+        }
+        return RoaringBitmap.bitmapOf(heap.toSortedIds());
+    }
+
+    private static double jaccard(LikeMatrix likeMatrix, int user, int other) {
+        final int common = likeMatrix.getCommonLikesCount(user, other);
+        return (double) common / (likeMatrix.getLikesCount(user) + likeMatrix.getLikesCount(other) - common);
+    }
+
+    /**
+     * Генерирует группы похожих пользователей: у каждой группы свой набор фильмов, каждый пользователь
+     * лайкает sharedLikes фильмов группы и случайные фильмы из всего каталога.
+     */
+    private static LikeMatrix generateClusteredMatrix(int groups, int groupSize, int likesPerUser, int sharedLikes,
+                                                      long seed) {
+        final Random random = new Random(seed);
+        final LikeMatrix.Builder builder = LikeMatrix.builder();
+        final long filmsCount = (long) groups * sharedLikes;
+
+        long userId = 0;
+        for (int group = 0; group < groups; group++) {
+            for (int member = 0; member < groupSize; member++, userId++) {
+                for (int i = 0; i < sharedLikes; i++) {
+                    builder.add(userId, (long) group * sharedLikes + i);
+                }
+                for (int i = sharedLikes; i < likesPerUser; i++) {
+                    builder.add(userId, (long) (random.nextDouble() * filmsCount));
+                }
+            }
+        }
+
+        return builder.build();
+    }
+}
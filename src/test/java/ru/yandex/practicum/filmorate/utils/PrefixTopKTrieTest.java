@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrefixTopKTrieTest {
+    @Test
+    void testTopByLikes() {
+        final PrefixTopKTrie trie = new PrefixTopKTrie(2);
+        trie.add(1, "Terminator", 1);
+        trie.add(2, "Terminator 2", 5);
+        trie.add(3, "Terminal", 1);
+        trie.add(4, "Matrix", 10);
+
+        assertArrayEquals(new long[]{2, 1}, trie.top("TERM", 10));
+        assertArrayEquals(new long[]{2}, trie.top("term", 1));
+        assertArrayEquals(new long[]{4, 2}, trie.top("", 10));
+        assertArrayEquals(new long[0], trie.top("x", 10));
+
+        trie.setLikes(3, 7);
+        assertArrayEquals(new long[]{3, 2}, trie.top("term", 10));
+
+        trie.remove(3);
+        trie.add(2, "Matrix 2", 5);
+        assertArrayEquals(new long[]{1}, trie.top("term", 10));
+        assertArrayEquals(new long[]{4, 2}, trie.top("matrix", 10));
+    }
+
+    @Test
+    void testRejectsNonPositiveK() {
+        assertThrows(IllegalArgumentException.class, () -> new PrefixTopKTrie(0));
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        final Random random = new Random(1);
+        final PrefixTopKTrie trie = new PrefixTopKTrie(5);
+        final Map<Long, String> titles = new HashMap<>();
+        final Map<Long, Long> likes = new HashMap<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            final long id = random.nextInt(300);
+            switch (random.nextInt(3)) {
+                case 0:
+                    final String title = randomWord(random);
+                    titles.put(id, title);
+                    likes.put(id, (long) random.nextInt(10));
+                    trie.add(id, title, likes.get(id));
+                    break;
+                case 1:
+                    titles.remove(id);
+                    likes.remove(id);
+                    trie.remove(id);
+                    break;
+                default:
+                    if (!titles.containsKey(id)) break;
+                    likes.put(id, (long) random.nextInt(10));
+                    trie.setLikes(id, likes.get(id));
+            }
+
+            final String prefix = randomWord(random).substring(0, random.nextInt(3));
+            final long[] expected = titles.entrySet().stream()
+                    .filter(e -> e.getValue().startsWith(prefix))
+                    .map(Map.Entry::getKey)
+                    .sorted(Comparator.comparingLong((Long x) -> likes.get(x)).reversed()
+                            .thenComparingLong(x -> x))
+                    .limit(5)
+                    .mapToLong(Long::longValue)
+                    .toArray();
+            assertArrayEquals(expected, trie.top(prefix, 5), prefix);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int length = 2 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
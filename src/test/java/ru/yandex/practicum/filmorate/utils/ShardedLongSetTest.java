@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedLongSetTest {
+    @Test
+    void testBehavesLikeHashSet() {
+        final ShardedLongSet set = new ShardedLongSet(16);
+        final Set<Long> expected = new HashSet<>();
+        final Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            final long key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    void testConcurrentAdds() {
+        final ShardedLongSet set = new ShardedLongSet(8);
+        IntStream.range(0, 100_000).parallel().forEach(i -> set.add(i % 10_000));
+        assertEquals(10_000, set.size());
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKHeapTest {
+    @Test
+    void testKeepsBestK() {
+        final TopKHeap heap = new TopKHeap(3);
+        heap.offer(1, 0.1);
+        heap.offer(2, 0.9);
+        heap.offer(3, 0.5);
+        heap.offer(4, 0.7);
+        heap.offer(5, 0.2);
+
+        assertEquals(3, heap.size());
+        assertArrayEquals(new int[]{2, 4, 3}, heap.toSortedIds());
+    }
+
+    @Test
+    void testTiesPreferSmallerId() {
+        final TopKHeap heap = new TopKHeap(2);
+        heap.offer(7, 1.0);
+        heap.offer(3, 1.0);
+        heap.offer(5, 1.0);
+
+        assertArrayEquals(new int[]{3, 5}, heap.toSortedIds());
+    }
+
+    @Test
+    void testScoreAccumulatorDrainsAndResets() {
+        final ScoreAccumulator scores = new ScoreAccumulator(10);
+        final TopKHeap heap = new TopKHeap(2);
+        scores.add(1, 0.5);
+        scores.add(2, 0.4);
+        scores.add(2, 0.4);
+        scores.add(9, 0.1);
+        scores.drainTo(heap);
+
+        assertArrayEquals(new int[]{2, 1}, heap.toSortedIds());
+
+        heap.clear();
+        scores.add(9, 0.1);
+        scores.drainTo(heap);
+        assertArrayEquals(new int[]{9}, heap.toSortedIds());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingCountersTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void testRecentLikesOutweighOldOnes() {
+        final TrendingCounters counters = new TrendingCounters(HOUR, 24, 6 * HOUR);
+        final long now = 100 * HOUR;
+        for (long user = 1; user <= 3; user++) {
+            counters.add(1, user, now - 20 * HOUR);
+        }
+        for (long user = 1; user <= 2; user++) {
+            counters.add(2, user, now - HOUR);
+        }
+        counters.add(3, 1, now);
+
+        // 3 лайка 20 часов назад весят 3 / 2^(20/6) < 1
+        assertEquals(List.of(2L, 3L, 1L), counters.top(10, 24 * HOUR, now));
+        assertEquals(List.of(2L, 3L), counters.top(10, 2 * HOUR, now));
+        assertEquals(List.of(2L), counters.top(1, 24 * HOUR, now));
+    }
+
+    @Test
+    void testRemoveUndoesLikeInItsBucket() {
+        final TrendingCounters counters = new TrendingCounters(HOUR, 24, 6 * HOUR);
+        final long now = 100 * HOUR;
+        counters.add(1, 1, now - 5 * HOUR);
+        counters.add(2, 1, now - 5 * HOUR);
+        counters.add(2, 2, now);
+        counters.remove(2, 2, now);
+        counters.remove(2, 3, now);
+        counters.remove(3, 1, now);
+
+        // у фильмов по одному лайку в одной корзине - при равенстве раньше меньший id
+        assertEquals(List.of(1L, 2L), counters.top(10, 24 * HOUR, now));
+        counters.remove(1, 1, now);
+        assertEquals(List.of(2L), counters.top(10, 24 * HOUR, now));
+    }
+
+    @Test
+    void testOldBucketsExpire() {
+        final TrendingCounters counters = new TrendingCounters(HOUR, 24, 6 * HOUR);
+        counters.add(1, 1, 0);
+        counters.add(2, 1, 10 * HOUR);
+        assertEquals(2, counters.size());
+
+        counters.add(2, 2, 30 * HOUR);
+        assertEquals(1, counters.size());
+        assertEquals(List.of(2L), counters.top(10, 24 * HOUR, 30 * HOUR));
+
+        // лайк первого фильма уже вне буфера, его удаление ничего не меняет
+        counters.remove(1, 1, 30 * HOUR);
+        counters.add(1, 1, 0);
+        assertEquals(List.of(2L), counters.top(10, 24 * HOUR, 30 * HOUR));
+        assertTrue(counters.top(10, 24 * HOUR, 60 * HOUR).isEmpty());
+    }
+
+    @Test
+    void testRemoveFilmAndUser() {
+        final TrendingCounters counters = new TrendingCounters(HOUR, 24, 6 * HOUR);
+        counters.add(1, 1, HOUR);
+        counters.add(2, 1, HOUR);
+        counters.add(2, 2, HOUR);
+        counters.add(3, 2, HOUR);
+
+        counters.removeUser(2);
+        assertEquals(List.of(1L, 2L), counters.top(10, 24 * HOUR, HOUR));
+        counters.removeFilm(1);
+        assertEquals(List.of(2L), counters.top(10, 24 * HOUR, HOUR));
+        // куча не больше кол-ва фильмов, поэтому огромный count не выделяет огромных массивов
+        assertEquals(List.of(2L), counters.top(Integer.MAX_VALUE, 24 * HOUR, HOUR));
+    }
+}
@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк нечёткого поиска запускается профилем: mvn test -P benchmark
+ */
+@Slf4j
+class TrigramIndexTest {
+    @Test
+    void testSearchIgnoresCase() {
+        final TrigramIndex index = new TrigramIndex();
+        index.add(1, "Терминатор 2");
+        index.add(2, "Terminator");
+        index.add(3, "Matrix");
+
+        assertArrayEquals(new long[]{2}, index.search("tERm").toSortedArray());
+        assertArrayEquals(new long[]{1}, index.search("МИНАТ").toSortedArray());
+        assertArrayEquals(new long[]{2, 3}, index.search("r").toSortedArray());
+        assertTrue(index.search("termx").isEmpty());
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        final TrigramIndex index = new TrigramIndex();
+        index.add(1, "Terminator");
+        index.add(1, "Matrix");
+        assertTrue(index.search("term").isEmpty());
+        assertArrayEquals(new long[]{1}, index.search("atri").toSortedArray());
+
+        index.remove(1);
+        assertTrue(index.search("atri").isEmpty());
+        assertEquals(0, index.size());
+        assertEquals(0, index.estimateMemoryBytes());
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        final Random random = new Random(1);
+        final TrigramIndex index = new TrigramIndex();
+        final Map<Long, String> titles = new HashMap<>();
+        for (long id = 0; id < 2_000; id++) {
+            final String title = randomWord(random, 5 + random.nextInt(15));
+            titles.put(id, title);
+            index.add(id, title);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            final String title = titles.get((long) random.nextInt(titles.size()));
+            final int from = random.nextInt(title.length() - 1);
+            final String query = title.substring(from, Math.min(title.length(), from + 1 + random.nextInt(5)));
+
+            final LongHashSet expected = new LongHashSet();
+            titles.forEach((id, t) -> {
+                if (t.contains(query)) expected.add(id);
+            });
+            assertArrayEquals(expected.toSortedArray(), index.search(query).toSortedArray(), query);
+        }
+    }
+
+    @Test
+    void testFuzzySearchToleratesTypos() {
+        final TrigramIndex index = new TrigramIndex();
+        index.add(1, "Terminator");
+        index.add(2, "Matrix");
+
+        final List<TrigramIndex.Match> matches = index.fuzzySearch("Termintor", 0.5);
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertTrue(index.fuzzySearch("Termintor", 0.9).isEmpty());
+    }
+
+    @Test
+    void testFuzzySearchFindsSingleTypoInShortWord() {
+        final TrigramIndex index = new TrigramIndex();
+        index.add(1, "Terminator");
+        index.add(2, "Matrix");
+        index.add(3, "The Matrix Reloaded");
+
+        for (String query : List.of("matirx", "matrx", "matrox")) {
+            final List<TrigramIndex.Match> matches = index.fuzzySearch(query, 0.4);
+            assertEquals(1, matches.size(), query);
+            assertEquals(2, matches.get(0).getId(), query);
+        }
+        final List<TrigramIndex.Match> matches = index.fuzzySearch("matirx reloaded", 0.4);
+        assertEquals(1, matches.size());
+        assertEquals(3, matches.get(0).getId());
+    }
+
+    @Test
+    void testFuzzySearchShortQuery() {
+        final TrigramIndex index = new TrigramIndex();
+        index.add(1, "Up");
+        index.add(2, "Matrix");
+
+        final List<TrigramIndex.Match> matches = index.fuzzySearch("Up", 0.4);
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertEquals(1.0, matches.get(0).getScore());
+        assertTrue(index.fuzzySearch("", 0.4).isEmpty());
+    }
+
+    @Test
+    void testFuzzySearchMatchesBruteForce() {
+        final Random random = new Random(2);
+        final TrigramIndex index = new TrigramIndex();
+        final Map<Long, String> titles = new HashMap<>();
+        for (long id = 0; id < 2_000; id++) {
+            final String title = randomWord(random, 5 + random.nextInt(15));
+            titles.put(id, title);
+            index.add(id, title);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            final String query = randomWord(random, 4 + random.nextInt(6));
+            final long[] queryTrigrams = TrigramIndex.paddedTrigrams(query);
+
+            final Map<Long, Double> expected = new HashMap<>();
+            titles.forEach((id, title) -> {
+                final LongHashSet titleTrigrams = new LongHashSet();
+                for (long trigram : TrigramIndex.paddedTrigrams(title)) {
+                    titleTrigrams.add(trigram);
+                }
+                final long common = Arrays.stream(queryTrigrams).filter(titleTrigrams::contains).count();
+                final double score = 2.0 * common / (queryTrigrams.length + titleTrigrams.size());
+                if (score >= 0.4) expected.put(id, score);
+            });
+
+            final Map<Long, Double> actual = index.fuzzySearch(query, 0.4).stream()
+                    .collect(Collectors.toMap(TrigramIndex.Match::getId, TrigramIndex.Match::getScore));
+            assertEquals(expected, actual, query);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkFuzzySearch() {
+        final Random random = new Random(3);
+        final TrigramIndex index = new TrigramIndex();
+        final String[] words = new String[20_000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = randomLetters(random, 3 + random.nextInt(8));
+        }
+        final int titlesCount = 1_000_000;
+        final String[] titles = new String[titlesCount];
+        for (int id = 0; id < titlesCount; id++) {
+            titles[id] = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            index.add(id, titles[id]);
+        }
+        log.info("FUZZY INDEX: {} TITLES, ~{} MB", index.size(), index.estimateMemoryBytes() / 1024 / 1024);
+
+        final int queries = 2_000;
+        final long[] times = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            final String query = typo(random, titles[random.nextInt(titlesCount)]);
+            final long start = System.nanoTime();
+            index.fuzzySearch(query, 0.4);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        log.info("FUZZY SEARCH p50 {} MS, p99 {} MS", times[queries / 2] / 1e6, times[queries * 99 / 100] / 1e6);
+    }
+
+    private static String typo(Random random, String str) {
+        final int i = random.nextInt(str.length());
+        return str.substring(0, i) + (char) ('a' + random.nextInt(26)) + str.substring(i + 1);
+    }
+
+    private static String randomLetters(Random random, int length) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static String randomWord(Random random, int length) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+}